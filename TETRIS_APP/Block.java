@@ -4,48 +4,60 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class Block {
-    private List<Cell> cells; // List of cells that make up the block
-    private int color;
+    private final Cell[] storage = new Cell[4]; // The block's own cells, reused when the block is recycled
+    private final List<Cell> cells = new ArrayList<>(4); // Cells still on the board
+    private int color; // Palette index
     private int type;
-    private Orientation orientation;
+    private int rotation; // Rotation index into the PieceCatalog masks
+    private int row; // Top-left corner of the 4x4 piece box on the board
+    private int col;
 
     private static final int NUM_ROWS = 20; // Number of rows in the game board
     private static final int NUM_COLS = 10; // Number of columns in the game board
 
-    public Block(List<Cell> cells, int color, int type, Orientation orientation) {
-        this.cells = cells;
-        this.color = color;
-        this.type = type;
-        this.orientation = orientation;
-        for (Cell cell : cells) {
-            cell.setColor(Integer.toHexString(color)); // Set the color for each cell
+    public Block() {
+        for (int i = 0; i < storage.length; i++) {
+            storage[i] = new Cell(0, 0, Palette.EMPTY);
         }
     }
 
-    // Copy constructor
-    public Block(Block other) {
-        this.color = other.color;
-        this.type = other.type;
-        this.orientation = other.orientation;
-
-        // Create a new list of cells
-        this.cells = new ArrayList<>();
+    public Block(int type, int color, int rotation, int row, int col) {
+        this();
+        reset(type, color, rotation, row, col);
+    }
 
-        // Copy each cell from the other block
-        for (Cell cell : other.cells) {
-            this.cells.add(new Cell(cell));
+    // Stamp a fresh piece into this block, restoring all of its cells
+    public void reset(int type, int color, int rotation, int row, int col) {
+        this.type = type;
+        cells.clear();
+        for (Cell cell : storage) {
+            cells.add(cell);
         }
+        setColor(color);
+        place(rotation, row, col);
     }
 
     public void setColor(int color) {
         this.color = color;
         for (Cell cell : cells) {
-            cell.setColor(Integer.toHexString(color)); // Update the color for each cell
+            cell.setColor(color); // Update the color for each cell
         }
     }
 
-    public void setOrientation(Orientation orientation) {
-        this.orientation = orientation;
+    // Move the cells onto the catalog shape for the given rotation with its box at (row, col)
+    public void place(int rotation, int row, int col) {
+        this.rotation = rotation;
+        this.row = row;
+        this.col = col;
+        int mask = PieceCatalog.mask(type, rotation);
+        int i = 0;
+        while (mask != 0) {
+            int bit = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1; // Clear the lowest set bit
+            Cell cell = cells.get(i++);
+            cell.setRow(row + bit / 4);
+            cell.setCol(col + bit % 4);
+        }
     }
 
     // Getter for cells
@@ -53,7 +65,12 @@ public class Block {
         return cells;
     }
 
+    // ARGB color for drawing
     public int getColor() {
+        return Palette.argb(color);
+    }
+
+    public int getColorIndex() {
         return color;
     }
 
@@ -62,22 +79,41 @@ public class Block {
     }
 
     public Orientation getOrientation() {
-        return orientation;
+        return PieceCatalog.orientation(type, rotation);
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    public int getMask() {
+        return PieceCatalog.mask(type, rotation);
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getCol() {
+        return col;
     }
 
     public void moveDown() {
+        row++;
         for (Cell cell : cells) {
             cell.moveDown(); // Move each cell of the block down
         }
     }
 
     public void moveLeft() {
+        col--;
         for (Cell cell : cells) {
             cell.moveLeft(); // Move each cell of the block left
         }
     }
 
     public void moveRight() {
+        col++;
         for (Cell cell : cells) {
             cell.moveRight(); // Move each cell of the block right
         }
@@ -0,0 +1,229 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Packed store for the locked stack: one occupancy bitmask per row, bit c set when column c is full,
+// a color plane holding the palette index of every cell, and the surface row of every column
+public class BoardGrid {
+    public static final int NUM_ROWS = 20; // Number of rows in the game board
+    public static final int NUM_COLS = 10; // Number of columns in the game board
+    public static final int FULL_ROW = (1 << NUM_COLS) - 1; // Mask of a row with every column filled
+
+    private final int[] rows = new int[NUM_ROWS];
+    private final byte[] colors = new byte[NUM_ROWS * NUM_COLS]; // Row-major palette indices
+    private final int[] surface = new int[NUM_COLS]; // Topmost occupied row per column, NUM_ROWS when empty
+
+    public BoardGrid() {
+        Arrays.fill(surface, NUM_ROWS);
+    }
+
+    public boolean isInside(int row, int col) {
+        return row >= 0 && row < NUM_ROWS && col >= 0 && col < NUM_COLS;
+    }
+
+    // Out-of-bounds cells count as occupied, the same as the walls and floor
+    public boolean isOccupied(int row, int col) {
+        if (!isInside(row, col)) {
+            return true;
+        }
+        return (rows[row] & (1 << col)) != 0;
+    }
+
+    public boolean isRowFull(int row) {
+        return rows[row] == FULL_ROW;
+    }
+
+    public int getRowMask(int row) {
+        return rows[row];
+    }
+
+    public int getSurface(int col) {
+        return surface[col];
+    }
+
+    // Palette index of a locked cell, Palette.EMPTY when the cell is free
+    public int colorAt(int row, int col) {
+        return colors[row * NUM_COLS + col];
+    }
+
+    public void set(int row, int col, int color) {
+        rows[row] |= 1 << col;
+        colors[row * NUM_COLS + col] = (byte) color;
+        if (row < surface[col]) {
+            surface[col] = row;
+        }
+    }
+
+    public void clear(int row, int col) {
+        rows[row] &= ~(1 << col);
+        colors[row * NUM_COLS + col] = Palette.EMPTY;
+        if (row == surface[col]) {
+            updateSurface();
+        }
+    }
+
+    // Test a 4x4 piece mask (bit r * 4 + c) with its box at (row, col) against the walls, floor and stack
+    public boolean fits(int mask, int row, int col) {
+        for (int r = 0; r < 4; r++) {
+            int slice = (mask >> (r * 4)) & 0xF;
+            if (slice == 0) {
+                continue;
+            }
+            int boardRow = row + r;
+            if (boardRow < 0 || boardRow >= NUM_ROWS) {
+                return false;
+            }
+            int bits;
+            if (col >= 0) {
+                bits = slice << col;
+            } else {
+                if ((slice & ((1 << -col) - 1)) != 0) {
+                    return false; // Part of the piece is past the left wall
+                }
+                bits = slice >> -col;
+            }
+            if ((bits & ~FULL_ROW) != 0 || (bits & rows[boardRow]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // How many rows a piece can fall from (row, col) before it lands. Read from the column surfaces
+    // in one pass over the piece's columns; only a piece tucked under an overhang needs the step-by-step test.
+    public int dropDistance(int mask, int row, int col) {
+        int distance = NUM_ROWS;
+        for (int c = 0; c < 4; c++) {
+            int columnBits = mask & (0x1111 << c);
+            if (columnBits == 0) {
+                continue;
+            }
+            int top = row + Integer.numberOfTrailingZeros(columnBits) / 4;
+            int bottom = row + (31 - Integer.numberOfLeadingZeros(columnBits)) / 4;
+            int surfaceRow = surface[col + c];
+            if (top > surfaceRow) {
+                return dropDistanceBySteps(mask, row, col);
+            }
+            distance = Math.min(distance, surfaceRow - bottom - 1);
+        }
+        return distance;
+    }
+
+    private int dropDistanceBySteps(int mask, int row, int col) {
+        int distance = 0;
+        while (fits(mask, row + distance + 1, col)) {
+            distance++;
+        }
+        return distance;
+    }
+
+    // Block out: a piece at (row, col) has no room once any of its columns has stack at or above the
+    // piece's lowest cell in that column
+    public boolean isToppedOut(int mask, int row, int col) {
+        for (int c = 0; c < 4; c++) {
+            int columnBits = mask & (0x1111 << c);
+            if (columnBits == 0) {
+                continue;
+            }
+            int bottom = row + (31 - Integer.numberOfLeadingZeros(columnBits)) / 4;
+            if (surface[col + c] <= bottom) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Mark every cell of a block that has just locked into the stack.
+    // Returns a mask with bit r set for every row r the block completed.
+    public int lockBlock(Block block) {
+        int fullRows = 0;
+        for (Cell cell : block.getCells()) {
+            int row = cell.getRow();
+            if (isInside(row, cell.getCol())) {
+                set(row, cell.getCol(), cell.getColorIndex());
+                if (rows[row] == FULL_ROW) {
+                    fullRows |= 1 << row;
+                }
+            }
+        }
+        return fullRows;
+    }
+
+    // Drop every row in fullRows and slide the rows above down in a single pass
+    public void compact(int fullRows) {
+        int dst = NUM_ROWS - 1;
+        for (int src = NUM_ROWS - 1; src >= 0; src--) {
+            if ((fullRows & (1 << src)) == 0) {
+                if (dst != src) {
+                    rows[dst] = rows[src];
+                    System.arraycopy(colors, src * NUM_COLS, colors, dst * NUM_COLS, NUM_COLS);
+                }
+                dst--;
+            }
+        }
+        while (dst >= 0) {
+            rows[dst] = 0;
+            Arrays.fill(colors, dst * NUM_COLS, (dst + 1) * NUM_COLS, (byte) Palette.EMPTY);
+            dst--;
+        }
+        updateSurface();
+    }
+
+    // Recompute every column surface from the row masks, top row first
+    private void updateSurface() {
+        Arrays.fill(surface, NUM_ROWS);
+        int remaining = FULL_ROW; // Columns whose surface is still unknown
+        for (int row = 0; row < NUM_ROWS && remaining != 0; row++) {
+            int hit = rows[row] & remaining;
+            remaining &= ~hit;
+            while (hit != 0) {
+                surface[Integer.numberOfTrailingZeros(hit)] = row;
+                hit &= hit - 1; // Clear the lowest set bit
+            }
+        }
+    }
+
+    // Fill shift[r] with how far row r moves down once fullRows are removed
+    public static void computeShift(int fullRows, int[] shift) {
+        int cleared = 0;
+        for (int row = NUM_ROWS - 1; row >= 0; row--) {
+            if ((fullRows & (1 << row)) != 0) {
+                cleared++;
+            }
+            shift[row] = cleared;
+        }
+    }
+
+    // Rebuild the masks from the block list
+    public void rebuild(List<Block> blocks) {
+        reset();
+        for (Block block : blocks) {
+            lockBlock(block);
+        }
+    }
+
+    public void reset() {
+        Arrays.fill(rows, 0);
+        Arrays.fill(colors, (byte) Palette.EMPTY);
+        Arrays.fill(surface, NUM_ROWS);
+    }
+
+    // Reference implementation: the original list scan, kept to verify the masks against
+    public static boolean isOccupiedByScan(List<Block> blocks, int row, int col) {
+        if (col >= NUM_COLS || col < 0) {
+            return true;
+        }
+        if (row < 0 || row >= NUM_ROWS) {
+            return true;
+        }
+        for (Block block : blocks) {
+            for (Cell cell : block.getCells()) {
+                if (cell.getCol() == col && cell.getRow() == row) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
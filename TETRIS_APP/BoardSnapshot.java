@@ -0,0 +1,142 @@
+package com.example.myapplication;
+
+// Immutable picture of the game at one moment: what the LED wall should show, the score and
+// whether the game is over. GameEngine publishes one after every change, so any thread can read
+// a consistent board without locks. Rows are shared: a snapshot only allocates the rows that
+// differ from the one before it, a move of the falling block touches a few of the twenty, and
+// diffing two snapshots skips every row they share without looking at it.
+public final class BoardSnapshot {
+    private static final int NUM_ROWS = BoardGrid.NUM_ROWS;
+    private static final int NUM_COLS = BoardGrid.NUM_COLS;
+
+    // One board row, never changed once built
+    private static final class Row {
+        final int mask; // Bit c set when column c is lit
+        final byte[] colors; // Palette index per column
+
+        Row(int mask, byte[] colors) {
+            this.mask = mask;
+            this.colors = colors;
+        }
+
+        boolean matches(GameBoardState board, int row) {
+            if (board.getRowMask(row) != mask) {
+                return false;
+            }
+            for (int col = 0; col < NUM_COLS; col++) {
+                if (board.colorAt(row, col) != colors[col]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final Row EMPTY_ROW = new Row(0, new byte[NUM_COLS]);
+
+    // Dark board, version 0; what the wall shows before the first frame
+    public static final BoardSnapshot EMPTY = new BoardSnapshot(0, 0, false, emptyRows());
+
+    private final long version;
+    private final int score;
+    private final boolean gameOver;
+    private final Row[] rows;
+
+    private BoardSnapshot(long version, int score, boolean gameOver, Row[] rows) {
+        this.version = version;
+        this.score = score;
+        this.gameOver = gameOver;
+        this.rows = rows;
+    }
+
+    private static Row[] emptyRows() {
+        Row[] rows = new Row[NUM_ROWS];
+        for (int row = 0; row < NUM_ROWS; row++) {
+            rows[row] = EMPTY_ROW;
+        }
+        return rows;
+    }
+
+    // Snapshot of board, reusing every row of previous that board still has
+    public static BoardSnapshot of(GameBoardState board, BoardSnapshot previous, long version, int score, boolean gameOver) {
+        Row[] rows = new Row[NUM_ROWS];
+        for (int row = 0; row < NUM_ROWS; row++) {
+            Row before = previous.rows[row];
+            if (before.matches(board, row)) {
+                rows[row] = before;
+            } else if (EMPTY_ROW.matches(board, row)) {
+                rows[row] = EMPTY_ROW;
+            } else {
+                byte[] colors = new byte[NUM_COLS];
+                for (int col = 0; col < NUM_COLS; col++) {
+                    colors[col] = (byte) board.colorAt(row, col);
+                }
+                rows[row] = new Row(board.getRowMask(row), colors);
+            }
+        }
+        return new BoardSnapshot(version, score, gameOver, rows);
+    }
+
+    // Bumped by the engine for every snapshot it publishes
+    public long getVersion() {
+        return version;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public boolean isOccupied(int row, int col) {
+        return (rows[row].mask & (1 << col)) != 0;
+    }
+
+    public int getRowMask(int row) {
+        return rows[row].mask;
+    }
+
+    public int colorAt(int row, int col) {
+        return rows[row].colors[col];
+    }
+
+    // Number of lit cells, which is the record count of a keyframe for this board
+    public int getOccupiedCount() {
+        int count = 0;
+        for (int row = 0; row < NUM_ROWS; row++) {
+            count += Integer.bitCount(rows[row].mask);
+        }
+        return count;
+    }
+
+    // Collect every cell that differs from previous into out: rows both snapshots share are equal
+    // and skipped, XOR of the row masks finds cells that were turned on or off, and cells occupied
+    // in both are compared by color. Returns the change count.
+    public int diff(BoardSnapshot previous, CellChangeBatch out) {
+        out.clear();
+        for (int row = 0; row < NUM_ROWS; row++) {
+            Row now = rows[row];
+            Row before = previous.rows[row];
+            if (now == before) {
+                continue;
+            }
+            int changed = now.mask ^ before.mask;
+            int common = now.mask & before.mask;
+            while (common != 0) {
+                int col = Integer.numberOfTrailingZeros(common);
+                common &= common - 1; // Clear the lowest set bit
+                if (now.colors[col] != before.colors[col]) {
+                    changed |= 1 << col;
+                }
+            }
+            while (changed != 0) {
+                int col = Integer.numberOfTrailingZeros(changed);
+                changed &= changed - 1;
+                out.add(row, col, (now.mask & (1 << col)) != 0 ? now.colors[col] : Palette.EMPTY);
+            }
+        }
+        return out.size();
+    }
+}
@@ -6,12 +6,12 @@ import java.util.Objects;
 public class Cell {
     private int row;
     private int col;
-    private String color; // Store the color of the cell
+    private byte color; // Palette index of the cell color
 
-    public Cell(int row, int col, String color) {
+    public Cell(int row, int col, int color) {
         this.row = row;
         this.col = col;
-        this.color = color; // Initialize the color
+        this.color = (byte) color; // Initialize the color
     }
 
     public Cell(Cell other) {
@@ -36,12 +36,12 @@ public class Cell {
         this.col = col;
     }
 
-    public String getColor() {
+    public int getColorIndex() {
         return color;
     }
 
-    public void setColor(String color) {
-        this.color = color;
+    public void setColor(int color) {
+        this.color = (byte) color;
     }
 
     public void moveDown() {
@@ -3,12 +3,19 @@ package com.example.myapplication;
 public class CellChange {
     private int row;
     private int col;
-    private boolean newValue;
+    private int color; // Palette index, Palette.EMPTY when the cell turned off
 
-    public CellChange(int row, int col, boolean newValue) {
+    public CellChange() {
+    }
+
+    public CellChange(int row, int col, int color) {
+        set(row, col, color);
+    }
+
+    public void set(int row, int col, int color) {
         this.row = row;
         this.col = col;
-        this.newValue = newValue;
+        this.color = color;
     }
 
     public int getRow() {
@@ -19,7 +26,11 @@ public class CellChange {
         return col;
     }
 
+    public int getColor() {
+        return color;
+    }
+
     public boolean getNewValue() {
-        return newValue;
+        return color != Palette.EMPTY;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package com.example.myapplication;
+
+// Reusable list of cell changes backed by a packed int array (row << 8 | col << 4 | palette index).
+// Read records through the accessors or a reused CellChange flyweight.
+public class CellChangeBatch {
+    private final int[] records = new int[BoardGrid.NUM_ROWS * BoardGrid.NUM_COLS]; // At most one change per cell
+    private int size;
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int row, int col, int color) {
+        records[size++] = (row << 8) | (col << 4) | color;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getRow(int i) {
+        return records[i] >> 8;
+    }
+
+    public int getCol(int i) {
+        return (records[i] >> 4) & 0x0F;
+    }
+
+    public int getColor(int i) {
+        return records[i] & 0x0F;
+    }
+
+    // Fill change with record i, so callers can iterate without allocating
+    public CellChange get(int i, CellChange change) {
+        change.set(getRow(i), getCol(i), getColor(i));
+        return change;
+    }
+}
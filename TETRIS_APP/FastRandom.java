@@ -0,0 +1,27 @@
+package com.example.myapplication;
+
+// Small seeded SplitMix64 generator. One instance drives every random choice in a game,
+// so a seed always reproduces the same piece sequence and nothing is allocated per draw.
+public class FastRandom {
+    private long state;
+
+    public FastRandom(long seed) {
+        setSeed(seed);
+    }
+
+    public void setSeed(long seed) {
+        state = seed;
+    }
+
+    public long nextLong() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Uniform value in [0, bound)
+    public int nextInt(int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.myapplication;
+
+// Reference decoder for binary frames (see WireFormat), mirroring what the wall firmware does
+public final class FrameDecoder {
+
+    public interface CellSink {
+        // A keyframe follows: every cell goes dark before its records are applied
+        void onClear();
+
+        void onCell(int row, int col, int color);
+    }
+
+    private FrameDecoder() {
+    }
+
+    // Decode one frame and hand every cell record to the sink. Returns the number of records.
+    public static int decode(byte[] data, int offset, int length, CellSink sink) {
+        int count = checkHeader(data, offset, length);
+        int type = type(data, offset);
+        if (type == WireFormat.TYPE_PALETTE || type == WireFormat.TYPE_LEDS) {
+            throw new IllegalArgumentException("Frame type " + type + " has no cells");
+        }
+        if (WireFormat.isKeyframe(type)) {
+            sink.onClear();
+        }
+        int pos = offset + WireFormat.HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            int row = data[pos++] & 0xFF;
+            int packed = data[pos++] & 0xFF;
+            if (WireFormat.hasSpans(type)) {
+                // Spans reach the sink as the cells they cover
+                int color = data[pos++] & 0xFF;
+                for (int col = packed >> 4; col <= (packed & 0x0F); col++) {
+                    sink.onCell(row, col, color);
+                }
+            } else {
+                sink.onCell(row, packed >> 4, packed & 0x0F);
+            }
+        }
+        return count;
+    }
+
+    // Decode a palette frame into out as opaque ARGB colors. Returns the number of entries.
+    public static int decodePalette(byte[] data, int offset, int length, int[] out) {
+        int count = checkHeader(data, offset, length);
+        if (type(data, offset) != WireFormat.TYPE_PALETTE) {
+            throw new IllegalArgumentException("Not a palette frame: " + type(data, offset));
+        }
+        if (count > out.length) {
+            throw new IllegalArgumentException("Palette too large: " + count);
+        }
+        int pos = offset + WireFormat.HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            out[i] = 0xFF000000 | (data[pos] & 0xFF) << 16 | (data[pos + 1] & 0xFF) << 8 | (data[pos + 2] & 0xFF);
+            pos += WireFormat.PALETTE_RECORD_SIZE;
+        }
+        return count;
+    }
+
+    // Decode an LED frame into leds, 0xRRGGBB by strip index, leaving LEDs it does not cover alone.
+    // Returns the number of ranges.
+    public static int decodeLeds(byte[] data, int offset, int length, int[] leds) {
+        int count = checkHeader(data, offset, length);
+        if (type(data, offset) != WireFormat.TYPE_LEDS) {
+            throw new IllegalArgumentException("Not an LED frame: " + type(data, offset));
+        }
+        int pos = offset + WireFormat.HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            int first = ((data[pos] & 0xFF) << 8) | (data[pos + 1] & 0xFF);
+            int ledCount = data[pos + 2] & 0xFF;
+            pos += WireFormat.LED_RANGE_HEADER_SIZE;
+            for (int led = first; led < first + ledCount; led++) {
+                leds[led] = (data[pos] & 0xFF) << 16 | (data[pos + 1] & 0xFF) << 8 | (data[pos + 2] & 0xFF);
+                pos += WireFormat.LED_SIZE;
+            }
+        }
+        return count;
+    }
+
+    // Validate the header and length of a frame. Returns its record count.
+    public static int checkHeader(byte[] data, int offset, int length) {
+        if (length < WireFormat.HEADER_SIZE) {
+            throw new IllegalArgumentException("Frame too short: " + length);
+        }
+        if ((data[offset] & 0xFF) != WireFormat.MAGIC) {
+            throw new IllegalArgumentException("Bad magic: " + (data[offset] & 0xFF));
+        }
+        if ((data[offset + 1] & 0xFF) != WireFormat.VERSION) {
+            throw new IllegalArgumentException("Unsupported version: " + (data[offset + 1] & 0xFF));
+        }
+        int type = type(data, offset);
+        if (type < WireFormat.TYPE_CELLS || type > WireFormat.TYPE_LEDS) {
+            throw new IllegalArgumentException("Unknown frame type: " + type);
+        }
+        int count = ((data[offset + 5] & 0xFF) << 8) | (data[offset + 6] & 0xFF);
+        if (type == WireFormat.TYPE_LEDS) {
+            checkLedRanges(data, offset, length, count);
+        } else if (length != WireFormat.HEADER_SIZE + count * WireFormat.recordSize(type)) {
+            throw new IllegalArgumentException("Length " + length + " does not match " + count + " records");
+        }
+        return count;
+    }
+
+    // LED ranges vary in length, so walk them: each must fit the strip and the last must end the frame
+    private static void checkLedRanges(byte[] data, int offset, int length, int count) {
+        int pos = WireFormat.HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            if (pos + WireFormat.LED_RANGE_HEADER_SIZE > length) {
+                throw new IllegalArgumentException("Frame ends inside LED range " + i);
+            }
+            int first = ((data[offset + pos] & 0xFF) << 8) | (data[offset + pos + 1] & 0xFF);
+            int ledCount = data[offset + pos + 2] & 0xFF;
+            if (ledCount == 0 || first + ledCount > LedLayout.NUM_LEDS) {
+                throw new IllegalArgumentException("Bad LED range " + first + " + " + ledCount);
+            }
+            pos += WireFormat.LED_RANGE_HEADER_SIZE + ledCount * WireFormat.LED_SIZE;
+        }
+        if (pos != length) {
+            throw new IllegalArgumentException("Length " + length + " does not match " + count + " LED ranges");
+        }
+    }
+
+    public static int type(byte[] data, int offset) {
+        return data[offset + 2] & 0xFF;
+    }
+
+    public static int sequence(byte[] data, int offset) {
+        return ((data[offset + 3] & 0xFF) << 8) | (data[offset + 4] & 0xFF);
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+import okio.ByteString;
+
+// Writes binary frames (see WireFormat) into one reused buffer
+public class FrameEncoder {
+    private byte[] buffer;
+    private int length;
+    private int count; // Records in the current frame
+
+    public FrameEncoder() {
+        // Room for every cell of the board being set and cleared in one frame
+        buffer = new byte[WireFormat.HEADER_SIZE + 2 * BoardGrid.NUM_ROWS * BoardGrid.NUM_COLS * WireFormat.CELL_RECORD_SIZE];
+    }
+
+    // Start a new frame of the given type, discarding the previous one
+    public void begin(int type) {
+        buffer[0] = (byte) WireFormat.MAGIC;
+        buffer[1] = (byte) WireFormat.VERSION;
+        buffer[2] = (byte) type;
+        buffer[3] = 0;
+        buffer[4] = 0;
+        length = WireFormat.HEADER_SIZE;
+        count = 0;
+    }
+
+    public void putCell(int row, int col, int color) {
+        ensureCapacity(WireFormat.CELL_RECORD_SIZE);
+        buffer[length++] = (byte) row;
+        buffer[length++] = (byte) ((col << 4) | (color & 0x0F));
+        count++;
+    }
+
+    public void putSpan(int row, int firstCol, int lastCol, int color) {
+        ensureCapacity(WireFormat.SPAN_RECORD_SIZE);
+        buffer[length++] = (byte) row;
+        buffer[length++] = (byte) ((firstCol << 4) | lastCol);
+        buffer[length++] = (byte) color;
+        count++;
+    }
+
+    // Append an LED range record for leds[first..first + ledCount), 0xRRGGBB per LED
+    public void putLedRange(int[] leds, int first, int ledCount) {
+        ensureCapacity(WireFormat.LED_RANGE_HEADER_SIZE + ledCount * WireFormat.LED_SIZE);
+        buffer[length++] = (byte) (first >> 8);
+        buffer[length++] = (byte) first;
+        buffer[length++] = (byte) ledCount;
+        for (int i = first; i < first + ledCount; i++) {
+            buffer[length++] = (byte) (leds[i] >> 16);
+            buffer[length++] = (byte) (leds[i] >> 8);
+            buffer[length++] = (byte) leds[i];
+        }
+        count++;
+    }
+
+    // Encode a batch of cell changes as whichever of TYPE_CELLS and TYPE_SPANS is smaller;
+    // returns the frame length
+    public int encodeDelta(CellChangeBatch changes) {
+        if (countSpans(changes) * WireFormat.SPAN_RECORD_SIZE < changes.size() * WireFormat.CELL_RECORD_SIZE) {
+            return encodeSpans(changes);
+        }
+        return encodeCells(changes);
+    }
+
+    // Encode a whole batch of cell changes as one TYPE_CELLS frame; returns the frame length
+    public int encodeCells(CellChangeBatch changes) {
+        begin(WireFormat.TYPE_CELLS);
+        for (int i = 0; i < changes.size(); i++) {
+            putCell(changes.getRow(i), changes.getCol(i), changes.getColor(i));
+        }
+        return finish();
+    }
+
+    // Encode a batch of cell changes as one TYPE_SPANS frame, merging runs of neighbouring cells in a
+    // row that change to the same color. The batch is in row then column order, as diff produces it.
+    public int encodeSpans(CellChangeBatch changes) {
+        begin(WireFormat.TYPE_SPANS);
+        int i = 0;
+        while (i < changes.size()) {
+            int end = spanEnd(changes, i);
+            putSpan(changes.getRow(i), changes.getCol(i), changes.getCol(end), changes.getColor(i));
+            i = end + 1;
+        }
+        return finish();
+    }
+
+    // Encode every lit cell of a board as whichever of TYPE_KEYFRAME and TYPE_SPAN_KEYFRAME is
+    // smaller; returns the frame length
+    public int encodeKeyframe(BoardSnapshot state) {
+        boolean spans = countSpans(state) * WireFormat.SPAN_RECORD_SIZE
+                < state.getOccupiedCount() * WireFormat.CELL_RECORD_SIZE;
+        begin(spans ? WireFormat.TYPE_SPAN_KEYFRAME : WireFormat.TYPE_KEYFRAME);
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            int mask = state.getRowMask(row);
+            while (mask != 0) {
+                int col = Integer.numberOfTrailingZeros(mask);
+                int color = state.colorAt(row, col);
+                if (spans) {
+                    int last = spanEnd(state, row, col);
+                    putSpan(row, col, last, color);
+                    mask &= ~((2 << last) - 1); // Clear the span and everything left of it
+                } else {
+                    putCell(row, col, color);
+                    mask &= mask - 1; // Clear the lowest set bit
+                }
+            }
+        }
+        return finish();
+    }
+
+    // Encode a color table, ARGB per entry with alpha ignored, as one TYPE_PALETTE frame;
+    // returns the frame length
+    public int encodePalette(int[] colors) {
+        if (colors.length > WireFormat.MAX_PALETTE_SIZE) {
+            throw new IllegalArgumentException("Palette too large: " + colors.length);
+        }
+        begin(WireFormat.TYPE_PALETTE);
+        for (int color : colors) {
+            ensureCapacity(WireFormat.PALETTE_RECORD_SIZE);
+            buffer[length++] = (byte) (color >> 16);
+            buffer[length++] = (byte) (color >> 8);
+            buffer[length++] = (byte) color;
+            count++;
+        }
+        return finish();
+    }
+
+    // Length of the frame encodeDelta would write, without writing it
+    public static int deltaLength(CellChangeBatch changes) {
+        int records = Math.min(countSpans(changes) * WireFormat.SPAN_RECORD_SIZE,
+                changes.size() * WireFormat.CELL_RECORD_SIZE);
+        return WireFormat.HEADER_SIZE + records;
+    }
+
+    // Length of the frame encodeKeyframe would write, without writing it
+    public static int keyframeLength(BoardSnapshot state) {
+        int records = Math.min(countSpans(state) * WireFormat.SPAN_RECORD_SIZE,
+                state.getOccupiedCount() * WireFormat.CELL_RECORD_SIZE);
+        return WireFormat.HEADER_SIZE + records;
+    }
+
+    public static int countSpans(CellChangeBatch changes) {
+        int spans = 0;
+        int i = 0;
+        while (i < changes.size()) {
+            i = spanEnd(changes, i) + 1;
+            spans++;
+        }
+        return spans;
+    }
+
+    public static int countSpans(BoardSnapshot state) {
+        int spans = 0;
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            int mask = state.getRowMask(row);
+            while (mask != 0) {
+                int last = spanEnd(state, row, Integer.numberOfTrailingZeros(mask));
+                mask &= ~((2 << last) - 1);
+                spans++;
+            }
+        }
+        return spans;
+    }
+
+    // Index of the last change in the run starting at change i
+    private static int spanEnd(CellChangeBatch changes, int i) {
+        int row = changes.getRow(i);
+        int color = changes.getColor(i);
+        int end = i;
+        while (end + 1 < changes.size()
+                && changes.getRow(end + 1) == row
+                && changes.getCol(end + 1) == changes.getCol(end) + 1
+                && changes.getColor(end + 1) == color) {
+            end++;
+        }
+        return end;
+    }
+
+    // Last column of the run of lit cells of one color starting at (row, col)
+    private static int spanEnd(BoardSnapshot state, int row, int col) {
+        int color = state.colorAt(row, col);
+        int last = col;
+        while (last + 1 < BoardGrid.NUM_COLS
+                && state.isOccupied(row, last + 1)
+                && state.colorAt(row, last + 1) == color) {
+            last++;
+        }
+        return last;
+    }
+
+    // Write the record count into the header; returns the frame length in bytes
+    public int finish() {
+        buffer[5] = (byte) (count >> 8);
+        buffer[6] = (byte) count;
+        return length;
+    }
+
+    // Stamp the sequence number into a frame, finished or not, so a cached frame can be sent again
+    public void setSequence(int sequence) {
+        buffer[3] = (byte) (sequence >> 8);
+        buffer[4] = (byte) sequence;
+    }
+
+    public int getType() {
+        return buffer[2] & 0xFF;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    // Copy of the finished frame for WebSocket.send(ByteString)
+    public ByteString toByteString() {
+        return ByteString.of(buffer, 0, length);
+    }
+
+    private void ensureCapacity(int extra) {
+        while (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+    }
+}
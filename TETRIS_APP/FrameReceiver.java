@@ -0,0 +1,108 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+// Reference receiver for the frame stream, doing what the wall firmware does: apply frames in
+// sequence, and on a gap ask for a resync and ignore deltas until a keyframe puts it back in step.
+public class FrameReceiver implements FrameDecoder.CellSink {
+
+    public interface ResyncListener {
+        // Called once per gap; the sender should answer with a keyframe
+        void onResyncNeeded();
+    }
+
+    private final ResyncListener listener;
+    private final byte[] cells = new byte[BoardGrid.NUM_ROWS * BoardGrid.NUM_COLS]; // Palette index per cell
+    private final int[] palette = new int[WireFormat.MAX_PALETTE_SIZE];
+    private int paletteSize;
+    private boolean synced; // False until the first keyframe and after every gap
+    private boolean resyncRequested;
+    private int expectedSequence;
+
+    private long appliedFrames;
+    private long ignoredFrames;
+    private long resyncs;
+
+    public FrameReceiver(ResyncListener listener) {
+        this.listener = listener;
+    }
+
+    // Handle one binary frame. Returns true if it was applied.
+    public boolean receive(byte[] data, int offset, int length) {
+        FrameDecoder.checkHeader(data, offset, length);
+        if (FrameDecoder.type(data, offset) == WireFormat.TYPE_PALETTE) {
+            // Outside the sequence; cells keep their indices and take the new colors
+            paletteSize = FrameDecoder.decodePalette(data, offset, length, palette);
+            return true;
+        }
+        if (FrameDecoder.type(data, offset) == WireFormat.TYPE_LEDS) {
+            // Raw pixels over the board; the cells no longer say what is lit until a keyframe
+            synced = false;
+            resyncRequested = false;
+            appliedFrames++;
+            return true;
+        }
+        int sequence = FrameDecoder.sequence(data, offset);
+        boolean keyframe = WireFormat.isKeyframe(FrameDecoder.type(data, offset));
+        if (!keyframe && (!synced || sequence != expectedSequence)) {
+            synced = false;
+            ignoredFrames++;
+            if (!resyncRequested) {
+                resyncRequested = true;
+                resyncs++;
+                listener.onResyncNeeded();
+            }
+            return false;
+        }
+        FrameDecoder.decode(data, offset, length, this);
+        synced = true;
+        resyncRequested = false;
+        expectedSequence = (sequence + 1) & WireFormat.SEQUENCE_MASK;
+        appliedFrames++;
+        return true;
+    }
+
+    // The link dropped; whatever comes next must start with a keyframe
+    public void disconnect() {
+        synced = false;
+        resyncRequested = false;
+    }
+
+    @Override
+    public void onClear() {
+        Arrays.fill(cells, (byte) Palette.EMPTY);
+    }
+
+    @Override
+    public void onCell(int row, int col, int color) {
+        if (row < BoardGrid.NUM_ROWS && col < BoardGrid.NUM_COLS) {
+            cells[row * BoardGrid.NUM_COLS + col] = (byte) color;
+        }
+    }
+
+    public int colorAt(int row, int col) {
+        return cells[row * BoardGrid.NUM_COLS + col];
+    }
+
+    // Color a cell shows with the negotiated palette, black before one arrives
+    public int argbAt(int row, int col) {
+        int index = colorAt(row, col);
+        return index < paletteSize ? palette[index] : 0xFF000000;
+    }
+
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public long getAppliedFrames() {
+        return appliedFrames;
+    }
+
+    public long getIgnoredFrames() {
+        return ignoredFrames;
+    }
+
+    public long getResyncs() {
+        return resyncs;
+    }
+}
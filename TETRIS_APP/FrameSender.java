@@ -0,0 +1,155 @@
+package com.example.myapplication;
+
+// Sender stage between the board and the wall link. While the link is behind it holds frames back
+// instead of queueing them, so the wall never replays a backlog of stale boards: the next diff is
+// taken against what was last handed to the link and carries every change since in one frame.
+// Each frame goes out as a delta or as a keyframe, whichever is smaller, stamped with the next
+// sequence number. A keyframe is also sent every keyframeInterval frames and whenever one is
+// requested after a reconnect or a resync request, so a lost frame costs one keyframe.
+public class FrameSender {
+    public static final int DEFAULT_BYTE_BUDGET = 32; // Two typical deltas of about 17 bytes in flight
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 60; // About two seconds of continuous play
+
+    // The link to the wall, kept abstract so the sender also runs off the device
+    public interface FrameSink {
+        // Bytes handed to the link that have not gone out yet
+        long queuedBytes();
+
+        // Returns false if the link refused the frame, for example because it is closed
+        boolean send(byte[] data, int offset, int length);
+    }
+
+    public enum Result {
+        UNCHANGED, // Nothing to send
+        SENT,
+        MERGED, // Link behind; the changes will go out with a later frame
+        DROPPED // Link refused the frame; the changes will go out with a later frame
+    }
+
+    private final FrameSink sink;
+    private BoardSnapshot sentState = BoardSnapshot.EMPTY; // Board as the wall shows it once the link drains
+    private final CellChangeBatch changeBatch = new CellChangeBatch();
+    private final FrameEncoder encoder = new FrameEncoder(); // Reused for every delta
+    // Keyframe of sentState, valid while keyframeCached; a resync of an unchanged board resends it as is
+    private final FrameEncoder keyframeEncoder = new FrameEncoder();
+    private boolean keyframeCached;
+    private FrameEncoder lastFrame = encoder;
+    private long byteBudget;
+    private int keyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+    private int framesSinceKeyframe;
+    private boolean keyframeRequested = true; // The wall starts from nothing
+    private int sequence;
+
+    private long sentFrames;
+    private long mergedFrames;
+    private long droppedFrames;
+    private long keyframes;
+    private long sentBytes;
+
+    public FrameSender(FrameSink sink) {
+        this(sink, DEFAULT_BYTE_BUDGET);
+    }
+
+    public FrameSender(FrameSink sink, long byteBudget) {
+        this.sink = sink;
+        this.byteBudget = byteBudget;
+    }
+
+    // Most bytes allowed to wait in the link before new frames are held back
+    public void setByteBudget(long byteBudget) {
+        this.byteBudget = byteBudget;
+    }
+
+    public long getByteBudget() {
+        return byteBudget;
+    }
+
+    // Frames between periodic keyframes
+    public void setKeyframeInterval(int keyframeInterval) {
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    // Send whatever changed between the last frame handed to the link and board
+    public Result send(BoardSnapshot board) {
+        int changes = board.diff(sentState, changeBatch);
+        if (changes == 0 && !keyframeRequested) {
+            return Result.UNCHANGED;
+        }
+        if (sink.queuedBytes() > byteBudget) {
+            mergedFrames++;
+            return Result.MERGED;
+        }
+
+        // A keyframe does not depend on earlier frames, so prefer it on a tie
+        boolean keyframe = keyframeRequested
+                || framesSinceKeyframe >= keyframeInterval
+                || FrameEncoder.keyframeLength(board) <= FrameEncoder.deltaLength(changeBatch);
+        FrameEncoder frame;
+        if (!keyframe) {
+            encoder.encodeDelta(changeBatch);
+            frame = encoder;
+        } else {
+            if (changes != 0 || !keyframeCached) {
+                keyframeEncoder.encodeKeyframe(board);
+            }
+            frame = keyframeEncoder;
+        }
+        frame.setSequence(sequence);
+        if (!sink.send(frame.getBuffer(), 0, frame.getLength())) {
+            keyframeCached = false; // The cache may now hold a board the wall never got
+            droppedFrames++;
+            return Result.DROPPED;
+        }
+        sequence = (sequence + 1) & WireFormat.SEQUENCE_MASK;
+        sentState = board; // Snapshots never change, so keeping the reference is enough
+        lastFrame = frame;
+        sentFrames++;
+        sentBytes += frame.getLength();
+        if (keyframe) {
+            keyframeCached = true;
+            keyframeRequested = false;
+            framesSinceKeyframe = 0;
+            keyframes++;
+        } else {
+            keyframeCached = false;
+            framesSinceKeyframe++;
+        }
+        return Result.SENT;
+    }
+
+    // Make the next frame a keyframe, even if the board has not changed. Call after the link
+    // reconnects or the wall asks for a resync.
+    public void requestKeyframe() {
+        keyframeRequested = true;
+    }
+
+    public long getSentFrames() {
+        return sentFrames;
+    }
+
+    public long getMergedFrames() {
+        return mergedFrames;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public long getKeyframes() {
+        return keyframes;
+    }
+
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    // Board as the wall will show it once everything sent has arrived
+    public BoardSnapshot getSentState() {
+        return sentState;
+    }
+
+    // Frame just sent, for logging
+    public FrameEncoder getLastFrame() {
+        return lastFrame;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.myapplication;
+
+// Coalesces board changes into at most one frame per window. The first change after a frame
+// schedules the next one, a window after the last frame at the earliest, and later changes ride
+// along with it. Time comes from the caller in milliseconds, so recordings and replays on a
+// desktop pace frames exactly as MainActivity does.
+public class FrameWindow {
+    public static final long DEFAULT_WINDOW_MS = 33; // About one show of the full LED strip
+    // How early a scheduled frame may go out to share a wake-up with other work; half a frame early
+    // is never noticed. WakeScheduler uses it for every task, and desktop tools read it from here
+    // because WakeScheduler needs Android.
+    public static final long SLACK_NANOS = 8_000_000L;
+
+    private final long windowMillis;
+    private boolean scheduled;
+    private long lastFrameTime = Long.MIN_VALUE / 2; // No frame yet, the first one goes right away
+
+    public FrameWindow() {
+        this(DEFAULT_WINDOW_MS);
+    }
+
+    public FrameWindow(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    // The board changed at now. Returns how long to wait before sending, or -1 if a frame is
+    // already scheduled and will carry the change.
+    public long schedule(long now) {
+        if (scheduled) {
+            return -1;
+        }
+        scheduled = true;
+        return Math.max(0, lastFrameTime + windowMillis - now);
+    }
+
+    // The scheduled frame is being sent at now
+    public void onFrame(long now) {
+        scheduled = false;
+        lastFrameTime = now;
+    }
+
+    // The scheduled frame was called off
+    public void cancel() {
+        scheduled = false;
+    }
+
+    public boolean isScheduled() {
+        return scheduled;
+    }
+}
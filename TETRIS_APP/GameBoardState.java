@@ -1,35 +1,61 @@
 package com.example.myapplication;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import java.util.Arrays;
 
+// Scratch copy of what the LED wall should show: one occupancy bitmask per row plus a palette
+// index per cell, with the falling block already merged in. GameEngine captures into one and
+// publishes it as a BoardSnapshot; tools fill one from a recording the same way.
 public class GameBoardState {
     private static final int NUM_ROWS = 20; // Number of rows in the game board
     private static final int NUM_COLS = 10; // Number of columns in the game board
 
-    private List<Block> blocks;
-
+    private final int[] rows = new int[NUM_ROWS];
+    private final byte[] colors = new byte[NUM_ROWS * NUM_COLS];
 
     public GameBoardState() {
-        blocks = new ArrayList<>();
     }
 
-    public void addBlock(Block block) {
-        // Add the block to the list of blocks
-        blocks.add(block);
+    // Overwrite this snapshot with the locked stack plus the falling block
+    public void capture(BoardGrid grid, Block falling) {
+        for (int row = 0; row < NUM_ROWS; row++) {
+            rows[row] = grid.getRowMask(row);
+            for (int col = 0; col < NUM_COLS; col++) {
+                colors[row * NUM_COLS + col] = (byte) grid.colorAt(row, col);
+            }
+        }
+        if (falling != null) {
+            for (Cell cell : falling.getCells()) {
+                if (grid.isInside(cell.getRow(), cell.getCol())) {
+                    set(cell.getRow(), cell.getCol(), cell.getColorIndex());
+                }
+            }
+        }
     }
 
-    public List<Block> getBlocks() {
-        return blocks;
+    public void copyFrom(GameBoardState other) {
+        System.arraycopy(other.rows, 0, rows, 0, NUM_ROWS);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
     }
 
+    public void clear() {
+        Arrays.fill(rows, 0);
+        Arrays.fill(colors, (byte) Palette.EMPTY);
+    }
 
+    public void set(int row, int col, int color) {
+        rows[row] |= 1 << col;
+        colors[row * NUM_COLS + col] = (byte) color;
+    }
 
+    public boolean isOccupied(int row, int col) {
+        return (rows[row] & (1 << col)) != 0;
+    }
 
+    public int getRowMask(int row) {
+        return rows[row];
+    }
 
-
+    public int colorAt(int row, int col) {
+        return colors[row * NUM_COLS + col];
+    }
 }
-
-
-
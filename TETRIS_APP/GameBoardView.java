@@ -1,39 +1,75 @@
 package com.example.myapplication;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
 import android.os.Handler;
-import android.os.Looper;
+import android.os.HandlerThread;
+import android.os.Process;
 import android.util.AttributeSet;
 import android.util.Log;
-import android.view.View;
+import android.view.Choreographer;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
 import android.widget.Toast;
 import android.widget.TextView;
-import okhttp3.WebSocket;
 
-
-
-import java.util.ArrayList;
-import java.util.List;
-
-public class GameBoardView extends View {
+// Renders the board on its own game thread. The thread owns the engine: it runs gravity off a
+// GravityScheduler paced by Choreographer vsync callbacks and draws straight to the surface, so
+// UI-thread work never delays a tick or a frame.
+public class GameBoardView extends SurfaceView implements SurfaceHolder.Callback {
     private static final int NUM_ROWS = 20; // Number of rows in the game board
     private static final int NUM_COLS = 10; // Number of columns in the game board
     private static final int CELL_SIZE = 50; // Size of each cell
 
     private Paint gridPaint;
-    private Paint blockPaint;
-    private List<Block> blocksOnBoard;
-    private Block currentBlock;
-    private Handler handler;
-    private Runnable blockFallRunnable;
-    private Block nextBlock;
-    private int scoreCounter = 0; // Initialize the counter to zero
+    private Paint previewBoxPaint;
+    private Paint[] blockPaints; // One fill per palette entry, created once
+    private Paint[] ghostPaints; // Translucent fills for where the current block will land
+
+    // Offscreen layers: the grid and preview frame only change with the surface size,
+    // the locked stack only when a block locks or rows clear
+    private Bitmap staticLayer;
+    private Bitmap stackLayer;
+    private Canvas stackCanvas;
+    private long drawnStackVersion = -1;
+    private int surfaceWidth;
+    private int surfaceHeight;
+
+    // Screen area covered by the falling block and its ghost in the last frame
+    private final Rect pieceRect = new Rect();
+    private final Rect dirtyRect = new Rect();
+    private long renderedStackVersion = -1;
+    private int renderedFallOffset = -1;
+    private boolean needsRender;
+
+    private GameEngine engine; // Game rules, only changed on the game thread
+    // Button events from the UI thread, applied on the game thread at the start of each frame
+    private final InputQueue inputQueue = new InputQueue();
+    private InputController inputController;
+    private GravityScheduler gravity;
+    private HandlerThread gameThread;
+    private Handler gameHandler;
+    private WakeScheduler wakeScheduler; // Timed work on the game thread, pumped by the frame loop
+    private Choreographer choreographer;
+    private boolean running; // Frame callbacks are posted while the surface exists and the game is on
+    private boolean surfaceReady; // Game thread only, like paused
+    private boolean paused;
+    private int shownScore = -1;
+
     private TextView scoreTextView; // Reference to the TextView that displays the score
 
-    private WebSocket webSocket;
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            onFrame(frameTimeNanos);
+        }
+    };
 
     public GameBoardView(Context context) {
         super(context);
@@ -57,788 +93,369 @@ public class GameBoardView extends View {
         gridPaint.setStyle(Paint.Style.STROKE);
         gridPaint.setStrokeWidth(2);
 
-        // Initialize the list of blocks
-        blocksOnBoard = new ArrayList<>();
-        handler = new Handler(Looper.getMainLooper());
-        blockFallRunnable = new Runnable() {
+        previewBoxPaint = new Paint();
+        previewBoxPaint.setColor(Color.BLACK); // Set the border color
+        previewBoxPaint.setStyle(Paint.Style.STROKE); // Set style to only draw the border
+        previewBoxPaint.setStrokeWidth(5); // Set the border width (adjust as needed)
+
+        blockPaints = new Paint[Palette.size()];
+        ghostPaints = new Paint[Palette.size()];
+        for (int i = 0; i < Palette.size(); i++) {
+            blockPaints[i] = new Paint();
+            blockPaints[i].setColor(Palette.argb(i));
+            blockPaints[i].setStyle(Paint.Style.FILL);
+            ghostPaints[i] = new Paint();
+            ghostPaints[i].setColor(Palette.argb(i));
+            ghostPaints[i].setAlpha(70);
+            ghostPaints[i].setStyle(Paint.Style.FILL);
+        }
+
+        // Keep the activity background visible behind the board
+        setZOrderOnTop(true);
+        getHolder().setFormat(PixelFormat.TRANSPARENT);
+        getHolder().addCallback(this);
+
+        engine = new GameEngine(System.nanoTime());
+        inputController = new InputController(engine, inputQueue);
+        gravity = new GravityScheduler(engine);
+        gameThread = new HandlerThread("GameLoop", Process.THREAD_PRIORITY_DISPLAY);
+        gameThread.start();
+        gameHandler = new Handler(gameThread.getLooper());
+        wakeScheduler = new WakeScheduler(gameHandler);
+        gameHandler.post(new Runnable() {
             @Override
             public void run() {
-                moveBlockDown();
-                invalidate(); // Redraw the view
-                if (!isGameOver()) {
-                    handler.postDelayed(this, 500); // Schedule the next block fall
-                } else {
-                    // Handle game over state
-                    gameOver();
-                }
+                // Choreographer is per thread, this one delivers vsync to the game thread
+                choreographer = Choreographer.getInstance();
             }
-        };
-        startBlockFall();
-    }
-    public void setScoreTextView(TextView scoreTextView) {
-        this.scoreTextView = scoreTextView;
-        updateScoreDisplay(); // Ensure the initial score is displayed
+        });
     }
 
-    // Notify the MainActivity about the game over
-    private void notifyGameOver() {
-        if (getContext() instanceof MainActivity) {
-            ((MainActivity) getContext()).onGameOver();
-        }
+    // Handler for the thread that owns the engine. Only this thread changes the game; other threads
+    // read it through getSnapshot.
+    public Handler getGameHandler() {
+        return gameHandler;
     }
 
-    private void gameOver() {
-        handler.removeCallbacks(blockFallRunnable);
-        Toast.makeText(getContext(), "Game Over!", Toast.LENGTH_SHORT).show();
-
-        // Send the GAMEOVER message along with the score to the ESP
-        if (webSocket != null) {
-            String gameOverMessage = "GAMEOVER," + scoreCounter;
-            Log.d("WebSocket", "Sending message: " + gameOverMessage);
-            webSocket.send(gameOverMessage);
-
-            // Notify the MainActivity that the game is over
-            notifyGameOver();
-        } else {
-            Log.e("WebSocket", "WebSocket is null. Cannot send GAMEOVER message.");
-        }
+    // Deadlines for timed work on the game thread. While the game runs its tasks ride on the frame
+    // loop's vsync wake-ups instead of waking the thread on their own.
+    public WakeScheduler getWakeScheduler() {
+        return wakeScheduler;
     }
 
-
-
-
-
-    public void setWebSocket(WebSocket webSocket) {
-        this.webSocket = webSocket;
-    }
-
-
-    private boolean isGameOver() {
-        if (currentBlock != null) {
-            for (Cell cell : currentBlock.getCells()) {
-                int row = cell.getRow();
-                int col = cell.getCol();
-
-                // Check if the cell is out of bounds (above the top row)
-                if (row < 0) {
-                    return true;
-                }
-                if (is_cell_full(cell)) {
-                    return true;
-                }
+    // The listener is called on the game thread after every change to the board
+    public void setBoardListener(final GameEngine.BoardListener listener) {
+        gameHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                engine.setBoardListener(listener);
             }
-            return false;
-        }
-        return true;
-    }
-
-    private void startBlockFall() {
-        if (nextBlock == null) {
-            nextBlock = BlockFactory.createRandomBlock(); // Prepare the next block
-        }
-
-        currentBlock = nextBlock;
-        nextBlock = BlockFactory.createRandomBlock(); // Prepare the next block for after the current one is placed
-
-        blockPaint = new Paint();
-        blockPaint.setColor(currentBlock.getColor());
-        blockPaint.setStyle(Paint.Style.FILL);
-
-        handler.postDelayed(blockFallRunnable, 500); // Schedule the first block fall
+        });
     }
 
-    private void moveBlockDown() {
-        // Move the current block down by one row
-        if (isBlockColliding() || isBlockAtBottom()) {
-            blocksOnBoard.add(currentBlock);
-            clearFullRows();
-
-            currentBlock = nextBlock; // Set the current block to the next block
-            nextBlock = BlockFactory.createRandomBlock(); // Generate a new next block
-
-            invalidate();
-        }
-        currentBlock.moveDown();
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
     }
 
-    private void clearFullRows() {
-        ArrayList<Integer> rowsToDelete = new ArrayList<>();
-        for (int row = 0; row < NUM_ROWS; row++) {
-            if (isRowFull(row)) {
-                rowsToDelete.add(row);
-                scoreCounter++; // Increment the score counter each time a row is cleared
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, final int width, final int height, int format) {
+        gameHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                buildLayers(width, height);
+                surfaceReady = true;
+                startLoop();
             }
-        }
-        for (Integer row : rowsToDelete) {
-            clearRow(row);
-            shiftRowsDown(row);
-            invalidate(); // Redraw the view after each row is cleared
-        }
-        updateScoreDisplay(); // Update the score display after rows are cleared
-    }
-
-    private void updateScoreDisplay() {
-        if (scoreTextView != null) {
-            scoreTextView.setText("Score: " + scoreCounter);
-        }
+        });
     }
 
-
-
-    private void shiftRowsDown(int clearedRow) {
-        for (Block block : blocksOnBoard) {
-            for (Cell cell : block.getCells()) {
-                if (cell.getRow() < clearedRow) {
-                    // Shift down the cells above the cleared row
-                    cell.moveDown();
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        // The surface must not be drawn to once this returns, so wait for the game thread to stop
+        final Object stopped = new Object();
+        synchronized (stopped) {
+            gameHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    surfaceReady = false;
+                    stopLoop();
+                    synchronized (stopped) {
+                        stopped.notify();
+                    }
                 }
+            });
+            try {
+                stopped.wait(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
     }
 
-    private void clearRow(int row) {
-        // Remove cells from the specified row that belong to blocks
-        List<Cell> cellsToRemove = new ArrayList<>();
-        for (Block block : blocksOnBoard) {
-            for (Cell cell : block.getCells()) {
-                if (cell.getRow() == row) {
-                    // Mark the cell for removal if it is in the specified row
-                    cellsToRemove.add(cell);
-                }
-            }
-        }
-        for (Cell cell : cellsToRemove) {
-            // Get the containing block of the cell and remove the cell from it
-            Block containingBlock = cell.getContainingBlock(blocksOnBoard);
-            if (containingBlock != null) {
-                containingBlock.getCells().remove(cell);
-            }
-        }
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        gameThread.quitSafely();
     }
 
-    private boolean isRowFull(int row) {
-        for (int col = 0; col < NUM_COLS; col++) {
-            Cell cell = new Cell(row, col, "000000"); // Provide a default color
-            if (!is_cell_full(cell)) {
-                return false;
+    // Stop the game while the activity is paused; the surface may stay up, so its callbacks alone
+    // would leave the game running
+    public void pause() {
+        gameHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                paused = true;
+                stopLoop();
             }
-        }
-        return true;
+        });
     }
 
-    private boolean isBlockColliding() {
-        // Check if the current block is colliding with other blocks on the board
-        for (Block block : blocksOnBoard) {
-            if (currentBlock.isCollidingWith(block)) {
-                return true;
+    public void resume() {
+        gameHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                paused = false;
+                startLoop();
             }
-        }
-        return false;
+        });
     }
 
-    private boolean isBlockAtBottom() {
-        // Check if the current block has reached the bottom of the board
-        for (Cell cell : currentBlock.getCells()) {
-            if (cell.getRow() >= NUM_ROWS - 1) {
-                return true;
-            }
+    private void startLoop() {
+        if (running || paused || !surfaceReady || engine.isGameOver()) {
+            return;
         }
-        return false;
+        running = true;
+        needsRender = true;
+        inputController.reset(); // Presses from before the pause are stale
+        gravity.start(System.nanoTime()); // The paused time does not count towards gravity
+        wakeScheduler.setPumped(true);
+        choreographer.postFrameCallback(frameCallback);
     }
 
-    public void moveCurrentBlockLeft() {
-        if (currentBlock != null) {
-            // Check if the block can be moved to the left
-            boolean canMoveLeft = true;
-            for (Cell cell : currentBlock.getCells()) {
-                if (cell.getCol() <= 0) {
-                    canMoveLeft = false; // Cannot move left if any cell is at the left edge
-                    break;
-                }
-            }
-            boolean LeftFlag = checkLeftCells();
-
-            // Move the block to the left if possible
-            if (canMoveLeft && LeftFlag) {
-                for (Cell cell : currentBlock.getCells()) {
-                    cell.moveLeft(); // Move each cell of the block left
-                }
-                invalidate(); // Redraw the view
-            }
+    // Also calls off every timed task, so a stopped game never wakes the thread; whoever restarts the
+    // loop schedules what it needs again
+    private void stopLoop() {
+        running = false;
+        wakeScheduler.cancelAll();
+        wakeScheduler.setPumped(false);
+        if (choreographer != null) {
+            choreographer.removeFrameCallback(frameCallback);
         }
     }
 
-    private boolean checkLeftCells() {
-        List<Cell> my_cells = currentBlock.getCells();
-        for (Cell cell : my_cells) {
-            int left_col = cell.getCol() - 1;
-            for (Block block : blocksOnBoard) {
-                if (block != currentBlock) { // Make sure not to check against itself
-                    for (Cell otherCell : block.getCells()) {
-                        if (otherCell.getRow() == cell.getRow() && otherCell.getCol() == left_col) {
-                            // Found an overlapping cell to the left of the current cell
-                            return false;
-                        }
-                    }
-                }
-            }
+    // One vsync: apply the queued inputs, run every fall and lock that came due and any timed tasks
+    // due around now, then draw the frame
+    private void onFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
         }
-        return true;
-    }
-
-    public void moveCurrentBlockRight() {
-        if (currentBlock != null) {
-            // Check if the block can be moved to the right
-            boolean canMoveRight = true;
-            for (Cell cell : currentBlock.getCells()) {
-                if (cell.getCol() >= NUM_COLS - 1) {
-                    canMoveRight = false; // Cannot move right if any cell is at the right edge
-                    break;
+        long nowNanos = System.nanoTime();
+        if (inputController.update(nowNanos)) {
+            needsRender = true;
+        }
+        if (gravity.update(nowNanos)) {
+            needsRender = true;
+        }
+        wakeScheduler.runDue(nowNanos); // After the updates, so a frame flush carries this vsync's changes
+
+        if (engine.isGameOver()) {
+            render(0);
+            stopLoop();
+            Log.d("Input", inputController.getLatency().summary("Input to board change"));
+            Log.d("Gravity", gravity.getJitter().summary("Row fall lateness")
+                    + ", " + gravity.getStalls() + " stalls");
+            Log.d("Wake", wakeScheduler.getRuns() + " timed tasks, " + wakeScheduler.getWakeups()
+                    + " wake-ups outside the frame loop");
+            final int finalScore = engine.getScore();
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    gameOver(finalScore);
                 }
-            }
-            boolean RightFlag = checkRightCells();
-
-            // Move the block to the right if possible
-            if (canMoveRight && RightFlag) {
-                for (Cell cell : currentBlock.getCells()) {
-                    cell.moveRight(); // Move each cell of the block right
-                }
-                invalidate(); // Redraw the view
-            }
+            });
+            return;
         }
-    }
 
-    private boolean checkRightCells() {
-        List<Cell> my_cells = currentBlock.getCells();
-        for (Cell cell : my_cells) {
-            int right_col = cell.getCol() + 1;
-            for (Block block : blocksOnBoard) {
-                if (block != currentBlock) { // Make sure not to check against itself
-                    for (Cell otherCell : block.getCells()) {
-                        if (otherCell.getRow() == cell.getRow() && otherCell.getCol() == right_col) {
-                            // Found an overlapping cell to the left of the current cell
-                            return false;
-                        }
-                    }
-                }
-            }
+        // Slide the falling block towards its next row between ticks
+        int fallOffset = 0;
+        if (engine.dropDistance() > 0) {
+            fallOffset = (int) (gravity.fallProgress(nowNanos) * CELL_SIZE);
         }
-        return true;
-    }
-
-    public void rotateCurrentBlock() {
-        if (currentBlock != null) {
-            switch (currentBlock.getType()) {
-                case 1:
-                    break;
-                case 2:
-                    rotateType2();
-                    break;
-                case 3:
-                    rotateType3();
-                    break;
-                case 4:
-                    rotateType4();
-                    break;
-                default:
-                    rotateType5();
-                    break;
-            }
-            invalidate(); // Redraw the view after rotation
+        if (needsRender || fallOffset != renderedFallOffset) {
+            render(fallOffset);
         }
+        choreographer.postFrameCallback(frameCallback);
     }
 
-    private void rotateType5() {
-        List<Cell> my_cells = currentBlock.getCells();
-        boolean canRotate = true;
-        if (currentBlock.getOrientation() == Orientation.UP) {
-            if (my_cells.get(0).getRow() == 0) {
-                canRotate = false;
-            }
-            int row0 = my_cells.get(0).getRow();
-            int col0 = my_cells.get(0).getCol();
-            Cell problem_cell = new Cell(row0 - 1, col0 - 1, "000000");
-            Cell problem_cell1 = new Cell(row0, col0 - 1, "000000");
-            if (is_cell_full(problem_cell) || is_cell_full(problem_cell1)) {
-                canRotate = false;
-            }
-            if (canRotate) {
-                my_cells.get(1).setRow(my_cells.get(1).getRow() + 1);
-                my_cells.get(1).setCol(my_cells.get(1).getCol() - 1);
-                my_cells.get(2).setRow(my_cells.get(2).getRow() - 2);
-                my_cells.get(2).setCol(my_cells.get(2).getCol());
-                my_cells.get(3).setRow(my_cells.get(3).getRow() - 1);
-                my_cells.get(3).setCol(my_cells.get(3).getCol() - 1);
-                currentBlock.setOrientation(Orientation.RIGHT);
-            }
-        } else if (currentBlock.getOrientation() == Orientation.RIGHT) {
-            if (my_cells.get(0).getCol() == NUM_COLS - 1) {
-                canRotate = false;
-            }
-            int row2 = my_cells.get(2).getRow();
-            int col2 = my_cells.get(2).getCol();
-            Cell problem_cell = new Cell(row2, col2 + 1, "000000");
-            Cell problem_cell1 = new Cell(row2, col2 + 2, "000000");
-            if (is_cell_full(problem_cell) || is_cell_full(problem_cell1)) {
-                canRotate = false;
-            }
-            if (canRotate) {
-                my_cells.get(1).setRow(my_cells.get(1).getRow() - 1);
-                my_cells.get(1).setCol(my_cells.get(1).getCol() - 1);
-                my_cells.get(2).setRow(my_cells.get(2).getRow());
-                my_cells.get(2).setCol(my_cells.get(2).getCol() + 2);
-                my_cells.get(3).setRow(my_cells.get(3).getRow() - 1);
-                my_cells.get(3).setCol(my_cells.get(3).getCol() + 1);
-                currentBlock.setOrientation(Orientation.DOWN);
-            }
-
-        } else if (currentBlock.getOrientation() == Orientation.DOWN) {
-            if (my_cells.get(0).getRow() == NUM_ROWS - 1) {
-                canRotate = false;
-            }
-            int row2 = my_cells.get(2).getRow();
-            int col2 = my_cells.get(2).getCol();
-            Cell problem_cell = new Cell(row2 + 1, col2, "000000");
-            Cell problem_cell1 = new Cell(row2 + 2, col2, "000000");
-            if (is_cell_full(problem_cell) || is_cell_full(problem_cell1)) {
-                canRotate = false;
-            }
-            if (canRotate) {
-                my_cells.get(1).setRow(my_cells.get(1).getRow() - 1);
-                my_cells.get(1).setCol(my_cells.get(1).getCol() + 1);
-                my_cells.get(2).setRow(my_cells.get(2).getRow() + 2);
-                my_cells.get(2).setCol(my_cells.get(2).getCol());
-                my_cells.get(3).setRow(my_cells.get(3).getRow() + 1);
-                my_cells.get(3).setCol(my_cells.get(3).getCol() + 1);
-                currentBlock.setOrientation(Orientation.LEFT);
-            }
+    // Queue a button press or release, stamped with System.nanoTime() when the touch arrived. Call
+    // on the UI thread only; it is the single writer of the input queue.
+    public void queueInput(GameEngine.Input input, boolean down, long timeNanos) {
+        inputQueue.offer(input, down, timeNanos);
+    }
 
-        } else {
-            if (my_cells.get(0).getCol() == 0) {
-                canRotate = false;
-            }
-            int row2 = my_cells.get(2).getRow();
-            int col2 = my_cells.get(2).getCol();
-            Cell problem_cell = new Cell(row2, col2 - 1, "000000");
-            Cell problem_cell1 = new Cell(row2, col2 - 2, "000000");
-            if (is_cell_full(problem_cell) || is_cell_full(problem_cell1)) {
-                canRotate = false;
-            }
-            if (canRotate) {
-                my_cells.get(1).setRow(my_cells.get(1).getRow() + 1);
-                my_cells.get(1).setCol(my_cells.get(1).getCol() + 1);
-                my_cells.get(2).setRow(my_cells.get(2).getRow());
-                my_cells.get(2).setCol(my_cells.get(2).getCol() - 2);
-                my_cells.get(3).setRow(my_cells.get(3).getRow() + 1);
-                my_cells.get(3).setCol(my_cells.get(3).getCol() - 1);
-                currentBlock.setOrientation(Orientation.UP);
+    // Delayed auto shift and auto repeat rate for held left and right buttons
+    public void setAutoShift(final long dasNanos, final long arrNanos) {
+        gameHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                inputController.setDelayedAutoShift(dasNanos);
+                inputController.setAutoRepeatRate(arrNanos);
             }
+        });
+    }
 
-        }
+    public void setScoreTextView(TextView scoreTextView) {
+        this.scoreTextView = scoreTextView;
+        scoreTextView.setText("Score: 0"); // Ensure the initial score is displayed
     }
 
-    private void rotateType4() {
-        List<Cell> my_cells = currentBlock.getCells();
-        boolean canRotate = true;
-        if (currentBlock.getOrientation() == Orientation.UP) {
-            for (Cell cell : my_cells) {
-                if (cell.getCol() == 0) {
-                    canRotate = false;
-                    break;
+    private void postScore(final int score) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                if (scoreTextView != null) {
+                    scoreTextView.setText("Score: " + score);
                 }
             }
-            int row1 = my_cells.get(1).getRow();
-            int row2 = my_cells.get(2).getRow();
-            int col1 = my_cells.get(1).getCol();
-            int col2 = my_cells.get(2).getCol();
-            Cell problem_cell = new Cell(row1, col1 - 1, "000000");
-            Cell problem_cell1 = new Cell(row1, col1 + 1, "000000");
-            Cell problem_cell2 = new Cell(row2, col2 - 1, "000000");
-            if (is_cell_full(problem_cell) || is_cell_full(problem_cell1) || is_cell_full(problem_cell2)) {
-                canRotate = false;
-            }
-            if (canRotate) {
-                my_cells.get(0).setRow(my_cells.get(0).getRow() + 1);
-                my_cells.get(2).setRow(my_cells.get(2).getRow() - 1);
-                my_cells.get(3).setRow(my_cells.get(3).getRow());
-                my_cells.get(0).setCol(my_cells.get(0).getCol() + 1);
-                my_cells.get(2).setCol(my_cells.get(2).getCol() - 1);
-                my_cells.get(3).setCol(my_cells.get(3).getCol() - 2);
-                currentBlock.setOrientation(Orientation.RIGHT);
-            }
-        } else if (currentBlock.getOrientation() == Orientation.RIGHT) {
-            if (my_cells.get(1).getRow() == 0) {
-                canRotate = false;
-            }
-            int row3 = my_cells.get(3).getRow();
-            int row2 = my_cells.get(2).getRow();
-            int col3 = my_cells.get(3).getCol();
-            int col2 = my_cells.get(2).getCol();
-            Cell problem_cell = new Cell(row3, col3 + 1, "000000");
-            Cell problem_cell1 = new Cell(row2 - 1, col2, "000000");
-            Cell problem_cell2 = new Cell(row2 - 1, col2 + 1, "000000");
-            if (is_cell_full(problem_cell) || is_cell_full(problem_cell1) || is_cell_full(problem_cell2)) {
-                canRotate = false;
-            }
-            if (canRotate) {
-                my_cells.get(0).setRow(my_cells.get(0).getRow() + 1);
-                my_cells.get(0).setCol(my_cells.get(0).getCol() - 1);
-                my_cells.get(2).setRow(my_cells.get(2).getRow() - 1);
-                my_cells.get(2).setCol(my_cells.get(2).getCol() + 1);
-                my_cells.get(3).setRow(my_cells.get(3).getRow() - 2);
-                my_cells.get(3).setCol(my_cells.get(3).getCol());
-                currentBlock.setOrientation(Orientation.DOWN);
-            }
-        } else if (currentBlock.getOrientation() == Orientation.DOWN) {
-            if (my_cells.get(1).getCol() == NUM_COLS - 1) {
-                canRotate = false;
-            }
-            int row1 = my_cells.get(1).getRow();
-            int row2 = my_cells.get(2).getRow();
-            int col1 = my_cells.get(1).getCol();
-            int col2 = my_cells.get(2).getCol();
-            Cell problem_cell = new Cell(row1, col1 - 1, "000000");
-            Cell problem_cell1 = new Cell(row2, col2 + 1, "000000");
-            Cell problem_cell2 = new Cell(row1, col1 + 1, "000000");
-            if (is_cell_full(problem_cell) || is_cell_full(problem_cell1) || is_cell_full(problem_cell2)) {
-                canRotate = false;
-            }
-            if (canRotate) {
-                my_cells.get(0).setRow(my_cells.get(0).getRow() - 1);
-                my_cells.get(0).setCol(my_cells.get(0).getCol() - 1);
-                my_cells.get(2).setRow(my_cells.get(2).getRow() + 1);
-                my_cells.get(2).setCol(my_cells.get(2).getCol() + 1);
-                my_cells.get(3).setRow(my_cells.get(3).getRow());
-                my_cells.get(3).setCol(my_cells.get(3).getCol() + 2);
-                currentBlock.setOrientation(Orientation.LEFT);
-            }
-
-        } else {
-            if (my_cells.get(0).getRow() == NUM_ROWS - 1) {
-                canRotate = false;
-            }
-            int row1 = my_cells.get(1).getRow();
-            int row3 = my_cells.get(3).getRow();
-            int col1 = my_cells.get(1).getCol();
-            int col3 = my_cells.get(3).getCol();
-            Cell problem_cell = new Cell(row3, col3 - 1, "000000");
-            Cell problem_cell1 = new Cell(row1 + 1, col1, "000000");
-            Cell problem_cell2 = new Cell(row1 + 1, col3, "000000");
-            if (is_cell_full(problem_cell) || is_cell_full(problem_cell1) || is_cell_full(problem_cell2)) {
-                canRotate = false;
-            }
-            if (canRotate) {
-                my_cells.get(0).setRow(my_cells.get(0).getRow() - 1);
-                my_cells.get(0).setCol(my_cells.get(0).getCol() + 1);
-                my_cells.get(2).setRow(my_cells.get(2).getRow() + 1);
-                my_cells.get(2).setCol(my_cells.get(2).getCol() - 1);
-                my_cells.get(3).setRow(my_cells.get(3).getRow() + 2);
-                my_cells.get(3).setCol(my_cells.get(3).getCol());
-                currentBlock.setOrientation(Orientation.UP);
-            }
+        });
+    }
 
+    // Notify the MainActivity about the game over
+    private void notifyGameOver(int score) {
+        if (getContext() instanceof MainActivity) {
+            ((MainActivity) getContext()).onGameOver(score);
         }
     }
 
-    private void rotateType2() {
-        // Check if we can rotate
-        List<Cell> my_cells = currentBlock.getCells();
-        boolean canRotate = true;
-        if (currentBlock.getOrientation() == Orientation.DOWN) {
-            System.out.println("in rotate 2");
-            for (Cell cell : my_cells) {
-                if (cell.getCol() >= NUM_COLS - 3) {
-                    canRotate = false;
-                    break;
-                }
-            }
-            // Check if the cells full
-            int col = my_cells.get(0).getCol();
-            int row = my_cells.get(0).getRow();
-            Cell problem_cell;
-            for (int i = 1; i < 4; i++) {
-                problem_cell = new Cell(row, col + i, "000000");
-                if (is_cell_full(problem_cell)) {
-                    canRotate = false;
-                    break;
-                }
-            }
-            if (canRotate) {
-                int tmp = my_cells.get(0).getRow();
-                my_cells.get(1).setRow(tmp);
-                my_cells.get(2).setRow(tmp);
-                my_cells.get(3).setRow(tmp);
-                my_cells.get(1).setCol(my_cells.get(1).getCol() + 1);
-                my_cells.get(2).setCol(my_cells.get(2).getCol() + 2);
-                my_cells.get(3).setCol(my_cells.get(3).getCol() + 3);
-                currentBlock.setOrientation(Orientation.UP);
-            }
-
-        } else {
-            for (Cell cell : my_cells) {
-                if (cell.getRow() >= NUM_ROWS - 3) {
-                    canRotate = false;
-                    break;
-                }
-            }
-            // Check if the cells full
-            int col = my_cells.get(0).getCol();
-            int row = my_cells.get(0).getRow();
-            Cell problem_cell;
-            for (int i = 1; i < 4; i++) {
-                problem_cell = new Cell(row + i, col, "000000");
-                if (is_cell_full(problem_cell)) {
-                    canRotate = false;
-                    break;
-                }
-
-            }
-            if (canRotate) {
-                int tmp = my_cells.get(0).getCol();
-                my_cells.get(1).setCol(tmp);
-                my_cells.get(2).setCol(tmp);
-                my_cells.get(3).setCol(tmp);
-                my_cells.get(1).setRow(my_cells.get(1).getRow() + 1);
-                my_cells.get(2).setRow(my_cells.get(2).getRow() + 2);
-                my_cells.get(3).setRow(my_cells.get(3).getRow() + 3);
-                currentBlock.setOrientation(Orientation.DOWN);
-            }
+    // Runs on the UI thread once the game thread has seen the game end. The activity shows the
+    // score on the wall.
+    private void gameOver(int score) {
+        Toast.makeText(getContext(), "Game Over!", Toast.LENGTH_SHORT).show();
+        notifyGameOver(score);
+    }
 
+    private void buildLayers(int width, int height) {
+        if (staticLayer != null) {
+            staticLayer.recycle();
+            stackLayer.recycle();
         }
+        surfaceWidth = width;
+        surfaceHeight = height;
+        // Draw the game board grid and preview frame once for this size
+        staticLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas staticCanvas = new Canvas(staticLayer);
+        drawGameBoard(staticCanvas);
+        drawPreviewBox(staticCanvas);
+
+        stackLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        stackCanvas = new Canvas(stackLayer);
+        drawnStackVersion = -1;
+        renderedStackVersion = -1;
     }
 
-    private boolean is_cell_full(Cell problem_cell) {
-        if (problem_cell.getCol() >= NUM_COLS || problem_cell.getCol() < 0) {
-            return true;
+    // Draw one frame to the surface, limited to what changed since the last one
+    private void render(int fallOffset) {
+        if (staticLayer == null) {
+            return;
         }
-        if (problem_cell.getRow() < 0 || problem_cell.getRow() >= NUM_ROWS) {
-            return true;
+        long stackVersion = engine.getStackVersion();
+        if (stackVersion != renderedStackVersion) {
+            // The stack or the preview changed, redraw everything
+            computePieceRect(pieceRect, fallOffset);
+            dirtyRect.set(0, 0, surfaceWidth, surfaceHeight);
+        } else {
+            // Only the falling block moved: redraw where it was and where it is now
+            dirtyRect.set(pieceRect);
+            computePieceRect(pieceRect, fallOffset);
+            dirtyRect.union(pieceRect);
         }
-        // Check if the current block is colliding with other blocks on the board
-        for (Block block : blocksOnBoard) {
-            List<Cell> block_cells = block.getCells();
-            for (Cell cell : block_cells) {
-                if (cell.getCol() == problem_cell.getCol() && cell.getRow() == problem_cell.getRow()) {
-                    return true;
-                }
-            }
+        if (drawnStackVersion != stackVersion) {
+            drawStackLayer();
         }
-        return false;
-    }
-
-    private void rotateType3() {
-        List<Cell> my_cells = currentBlock.getCells();
-        int problem_col;
-        int problem_row;
-        Cell problem_cell;
-        boolean cellFull;
-        switch (currentBlock.getOrientation()) {
-
-            case DOWN:
-                // Rotate DOWN orientation to LEFT orientation
-                // New positions:
-                // [ ][X][ ]
-                // [X][X][ ]
-                // [ ][X][ ]
-                boolean canRotateLeft = true;
-                problem_col = my_cells.get(0).getCol() + 1;
-                problem_row = my_cells.get(0).getRow() - 1;
-                problem_cell = new Cell(problem_row, problem_col, "000000");
-                cellFull = is_cell_full(problem_cell);
-                if (cellFull) {
-                    canRotateLeft = false;
-                }
-
-                for (Cell cell : my_cells) {
-                    if (cell.getRow() == 0) {
-                        canRotateLeft = false;
-                        break;
-                    }
-                }
-                if (canRotateLeft) {
-                    my_cells.get(0).setCol(my_cells.get(0).getCol() + 1);
-                    my_cells.get(0).setRow(my_cells.get(0).getRow() - 1);
-                    my_cells.get(2).setCol(my_cells.get(2).getCol() - 1);
-                    my_cells.get(2).setRow(my_cells.get(2).getRow() + 1);
-                    my_cells.get(3).setCol(my_cells.get(3).getCol() - 1);
-                    my_cells.get(3).setRow(my_cells.get(3).getRow() - 1);
-                    // Update the block's orientation
-                    currentBlock.setOrientation(Orientation.LEFT);
-                }
 
-                break;
-            case UP:
-                // Rotate UP orientation to RIGHT orientation
-                // New positions:
-                // [ ][X][ ]
-                // [ ][X][X]
-                // [ ][X][ ]
-                boolean canRotateRight = true;
-                problem_col = my_cells.get(0).getCol() - 1;
-                problem_row = my_cells.get(0).getRow() + 1;
-                problem_cell = new Cell(problem_row, problem_col, "000000");
-                cellFull = is_cell_full(problem_cell);
-                if (cellFull) {
-                    canRotateRight = false;
-                }
-                for (Cell cell : my_cells) {
-                    if (cell.getCol() >= NUM_COLS) {
-                        canRotateRight = false; // Cannot move right if any cell is at the right edge
-                        break;
-                    }
-                }
-                if (canRotateRight) {
-                    my_cells.get(0).setCol(my_cells.get(0).getCol() - 1);
-                    my_cells.get(0).setRow(my_cells.get(0).getRow() + 1);
-                    my_cells.get(2).setCol(my_cells.get(2).getCol() + 1);
-                    my_cells.get(2).setRow(my_cells.get(2).getRow() - 1);
-                    my_cells.get(3).setCol(my_cells.get(3).getCol() + 1);
-                    my_cells.get(3).setRow(my_cells.get(3).getRow() + 1);
-                    // Update the block's orientation
-                    currentBlock.setOrientation(Orientation.RIGHT);
-                }
-
-                break;
-            case LEFT:
-                // Rotate LEFT orientation to UP orientation
-                // New positions:
-                // [ ][X ][ ]
-                // [X][X][X]
-                // [ ][ ][ ]
-                boolean canRotateUp = true;
-                problem_col = my_cells.get(0).getCol() + 1;
-                problem_row = my_cells.get(0).getRow() + 1;
-                problem_cell = new Cell(problem_row, problem_col, "000000");
-                cellFull = is_cell_full(problem_cell);
-                if (cellFull) {
-                    canRotateUp = false;
-                }
-                for (Cell cell : my_cells) {
-                    if (cell.getCol() >= NUM_COLS - 1) {
-                        canRotateUp = false; // Cannot move right if any cell is at the right edge
-                        break;
-                    }
-                }
-                if (canRotateUp) {
-                    my_cells.get(0).setRow(my_cells.get(0).getRow() + 1);
-                    my_cells.get(0).setCol(my_cells.get(0).getCol() + 1);
-                    my_cells.get(2).setCol(my_cells.get(2).getCol() - 1);
-                    my_cells.get(2).setRow(my_cells.get(2).getRow() - 1);
-                    my_cells.get(3).setCol(my_cells.get(3).getCol() + 1);
-                    my_cells.get(3).setRow(my_cells.get(3).getRow() - 1);
-                    // Update the block's orientation
-                    currentBlock.setOrientation(Orientation.UP);
-                }
-
-                break;
-            case RIGHT:
-                // Rotate RIGHT orientation to DOWN orientation
-                // New positions:
-                // [ ][ ][ ]
-                // [ X][X][X]
-                // [ ][X][ ]
-                boolean canRotateDown = true;
-                problem_col = my_cells.get(0).getCol() - 1;
-                problem_row = my_cells.get(0).getRow() - 1;
-                problem_cell = new Cell(problem_row, problem_col, "000000");
-                cellFull = is_cell_full(problem_cell);
-                if (cellFull) {
-                    canRotateDown = false;
-                }
-                for (Cell cell : my_cells) {
-                    if (cell.getCol() <= 0) {
-                        canRotateDown = false; // Cannot move right if any cell is at the right edge
-                        break;
-                    }
-                }
-                if (canRotateDown) {
-                    my_cells.get(0).setCol(my_cells.get(0).getCol() - 1);
-                    my_cells.get(0).setRow(my_cells.get(0).getRow() - 1);
-                    my_cells.get(2).setCol(my_cells.get(2).getCol() + 1);
-                    my_cells.get(2).setRow(my_cells.get(2).getRow() + 1);
-                    my_cells.get(3).setCol(my_cells.get(3).getCol() - 1);
-                    my_cells.get(3).setRow(my_cells.get(3).getRow() + 1);
-                    // Update the block's orientation
-                    currentBlock.setOrientation(Orientation.DOWN);
-                }
+        Canvas canvas = getHolder().lockCanvas(dirtyRect);
+        if (canvas == null) {
+            return;
+        }
+        try {
+            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            canvas.drawBitmap(staticLayer, 0, 0, null);
+            canvas.drawBitmap(stackLayer, 0, 0, null);
+            // Draw the falling block on top of the cached layers
+            drawCurrentBlock(canvas, fallOffset);
+        } finally {
+            getHolder().unlockCanvasAndPost(canvas);
+        }
+        renderedStackVersion = stackVersion;
+        renderedFallOffset = fallOffset;
+        needsRender = false;
 
-                break;
-            default:
-                break;
+        if (engine.getScore() != shownScore) {
+            shownScore = engine.getScore();
+            postScore(shownScore);
         }
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-        // Draw the game board grid
-        drawGameBoard(canvas);
-        // Draw the Tetris blocks
-        drawBlocks(canvas);
-        drawPreviewBox(canvas);
-        // Draw the preview of the next block
-        drawNextBlockPreview(canvas);
+    // Bounds of the falling block, shifted by its in-between-ticks offset, together with its ghost
+    private void computePieceRect(Rect out, int fallOffset) {
+        Block block = engine.getCurrentBlock();
+        int mask = block.getMask();
+        int left = (block.getCol() + PieceCatalog.minCol(mask)) * CELL_SIZE;
+        int right = (block.getCol() + PieceCatalog.maxCol(mask) + 1) * CELL_SIZE;
+        int top = (block.getRow() + PieceCatalog.minRow(mask)) * CELL_SIZE + fallOffset;
+        int bottom = (engine.getGhostRow() + PieceCatalog.maxRow(mask) + 1) * CELL_SIZE;
+        out.set(left, top, right, Math.max(bottom, top + CELL_SIZE));
+    }
 
+    // Redraw the locked stack and the next block preview, only after a lock or clear
+    private void drawStackLayer() {
+        stackLayer.eraseColor(Color.TRANSPARENT);
+        drawBlocks(stackCanvas);
+        drawNextBlockPreview(stackCanvas);
+        drawnStackVersion = engine.getStackVersion();
     }
 
     private void drawNextBlockPreview(Canvas canvas) {
-        if (nextBlock == null)
-            return;
+        // Draw the next piece in the queue straight from its catalog mask
+        int spec = engine.getQueue().peek(0);
+        int mask = PieceCatalog.mask(PieceQueue.type(spec), 0);
 
         // Define the preview area dimensions
-        int previewBoxLeft = getWidth() - (CELL_SIZE * 5);
+        int previewBoxLeft = surfaceWidth - (CELL_SIZE * 5);
         int previewBoxTop = 20;
         int previewBoxSize = CELL_SIZE * 4; // the largest block fits in a 4x4 grid
 
-        // Find the minimum column and row for the block to normalize its position
-        int minCol = Integer.MAX_VALUE;
-        int minRow = Integer.MAX_VALUE;
-        for (Cell cell : nextBlock.getCells()) {
-            if (cell.getCol() < minCol) {
-                minCol = cell.getCol();
-            }
-            if (cell.getRow() < minRow) {
-                minRow = cell.getRow();
-            }
-        }
+        // Normalize the piece to the top-left of its box
+        int minCol = PieceCatalog.minCol(mask);
+        int minRow = PieceCatalog.minRow(mask);
 
         // Calculate the offset to center the block in the preview box
-        int maxBlockWidth = nextBlock.getMaxWidth() * CELL_SIZE;
-        int maxBlockHeight = nextBlock.getMaxHeight() * CELL_SIZE;
+        int maxBlockWidth = (PieceCatalog.maxCol(mask) - minCol + 1) * CELL_SIZE;
+        int maxBlockHeight = (PieceCatalog.maxRow(mask) - minRow + 1) * CELL_SIZE;
         int offsetX = (previewBoxSize - maxBlockWidth) / 2;
         int offsetY = (previewBoxSize - maxBlockHeight) / 2;
 
         // Draw the block cells centered in the preview area
-        for (Cell cell : nextBlock.getCells()) {
-            int normalizedCol = cell.getCol() - minCol;
-            int normalizedRow = cell.getRow() - minRow;
+        Paint paint = blockPaints[PieceQueue.color(spec)];
+        while (mask != 0) {
+            int bit = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1; // Clear the lowest set bit
+            int normalizedCol = bit % 4 - minCol;
+            int normalizedRow = bit / 4 - minRow;
             int cellLeft = previewBoxLeft + offsetX + (normalizedCol * CELL_SIZE);
             int cellTop = previewBoxTop + offsetY + (normalizedRow * CELL_SIZE);
             int cellRight = cellLeft + CELL_SIZE;
             int cellBottom = cellTop + CELL_SIZE;
-
-            blockPaint.setColor(nextBlock.getColor());
-            canvas.drawRect(cellLeft, cellTop, cellRight, cellBottom, blockPaint);
+            canvas.drawRect(cellLeft, cellTop, cellRight, cellBottom, paint);
         }
     }
 
     private void drawPreviewBox(Canvas canvas) {
-        int previewBoxLeft = getWidth() - (CELL_SIZE * 5); // preview box is to the right
+        int previewBoxLeft = surfaceWidth - (CELL_SIZE * 5); // preview box is to the right
         int previewBoxTop = 20; // Top margin
         int previewBoxWidth = CELL_SIZE * 4; // preview box can fit the largest block
         int previewBoxHeight = CELL_SIZE * 4; // Same as width for square area
 
-        Paint previewBoxPaint = new Paint();
-        previewBoxPaint.setColor(Color.WHITE); // Set the border color (e.g., white)
-        previewBoxPaint.setStyle(Paint.Style.STROKE); // Set style to only draw the border
-        previewBoxPaint.setStrokeWidth(5); // Set the border width (adjust as needed)
-
-        // Draw the background of the preview box
-        canvas.drawRect(previewBoxLeft, previewBoxTop, previewBoxLeft + previewBoxWidth, previewBoxTop + previewBoxHeight, previewBoxPaint);
-
-        // Optionally draw a border around the preview box
-        previewBoxPaint.setColor(Color.BLACK);
-        previewBoxPaint.setStyle(Paint.Style.STROKE);
         canvas.drawRect(previewBoxLeft, previewBoxTop, previewBoxLeft + previewBoxWidth, previewBoxTop + previewBoxHeight, previewBoxPaint);
     }
 
@@ -855,62 +472,49 @@ public class GameBoardView extends View {
     }
 
     private void drawBlocks(Canvas canvas) {
-        // Draw blocks on the board
-        for (Block block : blocksOnBoard) {
-            for (Cell cell : block.getCells()) {
-                int left = cell.getCol() * CELL_SIZE;
-                int top = cell.getRow() * CELL_SIZE;
+        // Draw the locked stack straight from the packed grid
+        BoardGrid grid = engine.getGrid();
+        for (int row = 0; row < NUM_ROWS; row++) {
+            int mask = grid.getRowMask(row);
+            while (mask != 0) {
+                int col = Integer.numberOfTrailingZeros(mask);
+                mask &= mask - 1; // Clear the lowest set bit
+                int left = col * CELL_SIZE;
+                int top = row * CELL_SIZE;
                 int right = left + CELL_SIZE;
                 int bottom = top + CELL_SIZE;
-                blockPaint.setColor(block.getColor());
-                canvas.drawRect(left, top, right, bottom, blockPaint);
+                canvas.drawRect(left, top, right, bottom, blockPaints[grid.colorAt(row, col)]);
             }
         }
-        // Draw current block
-        if (currentBlock != null) {
+    }
+
+    private void drawCurrentBlock(Canvas canvas, int fallOffset) {
+        Block currentBlock = engine.getCurrentBlock();
+        if (currentBlock == null) {
+            return;
+        }
+        Paint paint = blockPaints[currentBlock.getColorIndex()];
+        // Draw the ghost where a drop would land the block
+        if (!engine.isGameOver()) {
+            int ghostOffset = engine.getGhostRow() - currentBlock.getRow();
+            Paint ghostPaint = ghostPaints[currentBlock.getColorIndex()];
             for (Cell cell : currentBlock.getCells()) {
                 int left = cell.getCol() * CELL_SIZE;
-                int top = cell.getRow() * CELL_SIZE;
-                int right = left + CELL_SIZE;
-                int bottom = top + CELL_SIZE;
-                blockPaint.setColor(currentBlock.getColor());
-                canvas.drawRect(left, top, right, bottom, blockPaint);
+                int top = (cell.getRow() + ghostOffset) * CELL_SIZE;
+                canvas.drawRect(left, top, left + CELL_SIZE, top + CELL_SIZE, ghostPaint);
             }
         }
-    }
-
-    public void dropCurrentBlock() {
-        if (currentBlock != null) {
-            while (!isBlockAtBottom() && !isBlockColliding()) {
-                currentBlock.moveDown(); // Move the block down by one row
-            }
-
-            // Add the block to the list of blocks on the board since it's now landed
-            blocksOnBoard.add(currentBlock);
-            clearFullRows(); // Check and clear any full rows
-
-            // Prepare the next block
-            currentBlock = nextBlock;
-            nextBlock = BlockFactory.createRandomBlock();
-
-            invalidate(); // Redraw the view to show the block in its new position
-
+        for (Cell cell : currentBlock.getCells()) {
+            int left = cell.getCol() * CELL_SIZE;
+            int top = cell.getRow() * CELL_SIZE + fallOffset;
+            int right = left + CELL_SIZE;
+            int bottom = top + CELL_SIZE;
+            canvas.drawRect(left, top, right, bottom, paint);
         }
     }
 
-    public GameBoardState getGameBoardState() {
-        GameBoardState boardState = new GameBoardState();
-
-        // Add all blocks currently on the board to the game board state
-        for (Block block : blocksOnBoard) {
-            boardState.addBlock(block);
-        }
-
-        // If there is a currentBlock (the block currently being moved), add it to the game board state
-        if (currentBlock != null) {
-            boardState.addBlock(currentBlock);
-        }
-
-        return boardState;
+    // The board as of the engine's last change; safe to call from any thread
+    public BoardSnapshot getSnapshot() {
+        return engine.getSnapshot();
     }
 }
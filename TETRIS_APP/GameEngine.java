@@ -0,0 +1,357 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Plain Java game rules: spawn, move, rotate, gravity, lock, line clear and game over.
+// No Android classes and no clock; time only advances when step() is called, so the same
+// engine runs on the device, in replays and in load tests on a desktop JVM.
+// One thread drives the engine and is the only one to change it. Every other thread reads the
+// BoardSnapshot it publishes after each change.
+public class GameEngine {
+    private static final int NUM_ROWS = BoardGrid.NUM_ROWS;
+    // Enough spare blocks to cover a four-line clear emptying every block it touches
+    private static final int BLOCK_POOL_SIZE = 16;
+    public static final int LINES_PER_LEVEL = 10;
+
+    public enum Input {
+        NONE,
+        LEFT,
+        RIGHT,
+        ROTATE,
+        DROP
+    }
+
+    // Told whenever the board changes: a move, rotation, gravity step, lock or line clear.
+    // Called on the thread that drives the engine, once the new snapshot is published.
+    public interface BoardListener {
+        void onBoardChanged();
+    }
+
+    private final BoardGrid grid = new BoardGrid(); // Packed occupancy of blocksOnBoard, one bitmask per row
+    private final List<Block> blocksOnBoard = new ArrayList<>();
+    private final int[] rowShift = new int[NUM_ROWS]; // Scratch for the line clear compaction
+    private int pendingFullRows; // Rows completed by the last locked block, bit r for row r
+    private final long seed;
+    private final FastRandom random;
+    private final PieceQueue queue; // Upcoming pieces, replaces a single next block
+    private final BlockFactory blockFactory = new BlockFactory(BLOCK_POOL_SIZE);
+    private Block currentBlock;
+    private int score;
+    private boolean gameOver;
+    private long tick; // Number of gravity steps taken
+    private long stackVersion; // Bumped whenever the locked stack or the piece queue changes
+    private long moveCount; // Successful moves and rotations, which push back a lock delay
+    private BoardListener boardListener;
+    private final GameBoardState scratch = new GameBoardState(); // Captured board for the next snapshot
+    private final AtomicReference<BoardSnapshot> snapshot = new AtomicReference<>(BoardSnapshot.EMPTY);
+    private long snapshotVersion;
+
+    public GameEngine(long seed) {
+        this(seed, PieceGenerator.Mode.BAG, 3);
+    }
+
+    // The same seed, mode and inputs always play out the same game
+    public GameEngine(long seed, PieceGenerator.Mode mode, int lookahead) {
+        this.seed = seed;
+        this.random = new FastRandom(seed);
+        this.queue = new PieceQueue(PieceGenerator.create(mode, random), random, lookahead);
+        reset();
+    }
+
+    // Restart the game from the beginning of the seeded sequence
+    public void reset() {
+        random.setSeed(seed);
+        queue.reset();
+        grid.reset();
+        for (Block block : blocksOnBoard) {
+            blockFactory.recycle(block);
+        }
+        blocksOnBoard.clear();
+        if (currentBlock != null) {
+            blockFactory.recycle(currentBlock);
+        }
+        pendingFullRows = 0;
+        score = 0;
+        gameOver = false;
+        tick = 0;
+        stackVersion++;
+        spawnBlock();
+        notifyBoardChanged();
+    }
+
+    public void setBoardListener(BoardListener listener) {
+        boardListener = listener;
+    }
+
+    private void notifyBoardChanged() {
+        publishSnapshot();
+        if (boardListener != null) {
+            boardListener.onBoardChanged();
+        }
+    }
+
+    // One engine tick: apply the input, then pull the current block down one row.
+    // Returns true if the board changed.
+    public boolean step(Input input) {
+        if (gameOver) {
+            return false;
+        }
+        boolean changed = applyInput(input);
+        if (!gameOver) {
+            changed |= gravity();
+        }
+        tick++;
+        if (changed) {
+            notifyBoardChanged(); // One event per tick, however many things moved
+        }
+        return changed;
+    }
+
+    // Apply an input between ticks, without gravity. Returns true if the board changed.
+    public boolean apply(Input input) {
+        if (gameOver) {
+            return false;
+        }
+        boolean changed = applyInput(input);
+        if (changed) {
+            notifyBoardChanged();
+        }
+        return changed;
+    }
+
+    private boolean applyInput(Input input) {
+        boolean moved;
+        switch (input) {
+            case LEFT:
+                moved = moveLeft();
+                break;
+            case RIGHT:
+                moved = moveRight();
+                break;
+            case ROTATE:
+                moved = rotate();
+                break;
+            case DROP:
+                drop();
+                return true;
+            default:
+                return false;
+        }
+        if (moved) {
+            moveCount++;
+        }
+        return moved;
+    }
+
+    // Pull the current block down one row if it can fall, leaving a landed block unlocked, for a
+    // caller that gives it a lock delay (see GravityScheduler). Returns true if it moved.
+    public boolean fall() {
+        if (gameOver || !canMoveDown()) {
+            return false;
+        }
+        currentBlock.moveDown();
+        tick++;
+        notifyBoardChanged();
+        return true;
+    }
+
+    // Lock the current block where it is, once its lock delay has run out
+    public void lock() {
+        if (gameOver) {
+            return;
+        }
+        lockCurrentBlock();
+        tick++;
+        notifyBoardChanged();
+    }
+
+    // True when the current block rests on the stack or the floor
+    public boolean isLanded() {
+        return !canMoveDown();
+    }
+
+    public boolean moveLeft() {
+        // Move the block to the left if its mask still fits one column over
+        if (fits(currentBlock.getRow(), currentBlock.getCol() - 1)) {
+            currentBlock.moveLeft();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean moveRight() {
+        // Move the block to the right if its mask still fits one column over
+        if (fits(currentBlock.getRow(), currentBlock.getCol() + 1)) {
+            currentBlock.moveRight();
+            return true;
+        }
+        return false;
+    }
+
+    // Rotate clockwise, trying each kick offset from the catalog until the new mask fits
+    public boolean rotate() {
+        int type = currentBlock.getType();
+        int rotation = (currentBlock.getRotation() + 1) % PieceCatalog.NUM_ROTATIONS;
+        int mask = PieceCatalog.mask(type, rotation);
+        for (int[] kick : PieceCatalog.kicks(type)) {
+            int row = currentBlock.getRow() + kick[0];
+            int col = currentBlock.getCol() + kick[1];
+            if (grid.fits(mask, row, col)) {
+                currentBlock.place(rotation, row, col);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Hard drop: move the block as far down as it goes and lock it
+    public void drop() {
+        int distance = dropDistance();
+        for (int i = 0; i < distance; i++) {
+            currentBlock.moveDown();
+        }
+        lockCurrentBlock();
+    }
+
+    // Rows the current block can still fall before it lands
+    public int dropDistance() {
+        return grid.dropDistance(currentBlock.getMask(), currentBlock.getRow(), currentBlock.getCol());
+    }
+
+    // Box row where the current block would land, for the ghost piece preview
+    public int getGhostRow() {
+        return currentBlock.getRow() + dropDistance();
+    }
+
+    // Move the block down one row, or lock it if it has landed
+    private boolean gravity() {
+        if (canMoveDown()) {
+            currentBlock.moveDown();
+        } else {
+            lockCurrentBlock();
+        }
+        return true;
+    }
+
+    private boolean canMoveDown() {
+        return fits(currentBlock.getRow() + 1, currentBlock.getCol());
+    }
+
+    private boolean fits(int row, int col) {
+        return grid.fits(currentBlock.getMask(), row, col);
+    }
+
+    private void lockCurrentBlock() {
+        blocksOnBoard.add(currentBlock);
+        pendingFullRows = grid.lockBlock(currentBlock);
+        clearFullRows();
+        stackVersion++;
+        spawnBlock();
+    }
+
+    private void spawnBlock() {
+        currentBlock = blockFactory.createBlock(queue.take()); // Spawn the next piece in the queue
+        // The game is over once the stack reaches into the columns of a freshly placed block
+        if (grid.isToppedOut(currentBlock.getMask(), currentBlock.getRow(), currentBlock.getCol())) {
+            gameOver = true;
+        }
+    }
+
+    private void clearFullRows() {
+        int fullRows = pendingFullRows;
+        pendingFullRows = 0;
+        if (fullRows != 0) {
+            score += Integer.bitCount(fullRows); // One point for each row cleared
+            compactRows(fullRows);
+        }
+    }
+
+    // Remove every full row and shift the stack down in one pass, however many rows cleared.
+    // Blocks left without cells go back to the pool so blocksOnBoard stays bounded.
+    private void compactRows(int fullRows) {
+        BoardGrid.computeShift(fullRows, rowShift);
+        Iterator<Block> blocks = blocksOnBoard.iterator();
+        while (blocks.hasNext()) {
+            Block block = blocks.next();
+            Iterator<Cell> it = block.getCells().iterator();
+            while (it.hasNext()) {
+                Cell cell = it.next();
+                int row = cell.getRow();
+                if ((fullRows & (1 << row)) != 0) {
+                    it.remove(); // The cell was in a cleared row
+                } else {
+                    cell.setRow(row + rowShift[row]); // Shift down past the cleared rows below
+                }
+            }
+            if (block.getCells().isEmpty()) {
+                blocks.remove();
+                blockFactory.recycle(block);
+            }
+        }
+        grid.compact(fullRows);
+    }
+
+    public BoardGrid getGrid() {
+        return grid;
+    }
+
+    public List<Block> getBlocksOnBoard() {
+        return blocksOnBoard;
+    }
+
+    public Block getCurrentBlock() {
+        return currentBlock;
+    }
+
+    public PieceQueue getQueue() {
+        return queue;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getStackVersion() {
+        return stackVersion;
+    }
+
+    public long getMoveCount() {
+        return moveCount;
+    }
+
+    // Gravity speeds up every LINES_PER_LEVEL cleared lines, which is every LINES_PER_LEVEL points
+    public int getLevel() {
+        return score / LINES_PER_LEVEL;
+    }
+
+    // Snapshot the locked stack and the falling block into out
+    public void captureState(GameBoardState out) {
+        out.capture(grid, currentBlock);
+    }
+
+    // The board as of the last change. Safe to call from any thread.
+    public BoardSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    // Build the next snapshot on top of the last one, so unchanged rows are shared, and publish it
+    private void publishSnapshot() {
+        captureState(scratch);
+        snapshot.set(BoardSnapshot.of(scratch, snapshot.get(), ++snapshotVersion, score, gameOver));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.myapplication;
+
+// The wall's game over screen: YOUR SCORE IS and the score in blue, with orange rays growing out of
+// the corners one step every ANIMATION_STEP_MS and starting over once they reach the edges. After
+// ANIMATION_LOOPS the rays stay at full length.
+public final class GameOverScreen {
+    public static final int ANIMATION_STEP_MS = 200;
+    public static final int ANIMATION_STEPS = 6;
+    public static final int ANIMATION_LOOPS = 25; // Half a minute, then the screen holds still
+
+    private static final int TEXT_RGB = 0x0000FF;
+    private static final int RAY_RGB = 0xFFA500;
+    private static final String[] LINES = {"YOUR", "SCORE", "IS"};
+    private static final int[] LINE_Y = {6, 13, 20};
+    private static final int SCORE_Y = 27;
+    private static final int TOP_RAY_Y = 5; // Top rays grow up from here, the bottom ones down
+    private static final int BOTTOM_RAY_Y = 33;
+    private static final int CENTER_X = LedLayout.WIDTH / 2;
+
+    private GameOverScreen() {
+    }
+
+    // Compose the screen at an animation step, 0..ANIMATION_STEPS - 1
+    public static void draw(LedFrameComposer composer, int score, int step) {
+        composer.clear();
+        for (int i = 0; i < LINES.length; i++) {
+            LedFont.draw(composer, LINES[i], LedFont.centerX(LINES[i]), LINE_Y[i], TEXT_RGB);
+        }
+        String digits = score < 10 ? "0" + Math.max(0, score) : Integer.toString(score);
+        LedFont.draw(composer, digits, LedFont.centerX(digits), SCORE_Y, TEXT_RGB);
+
+        // Every step lights one more pixel of each ray
+        for (int i = 0; i <= step; i++) {
+            int top = TOP_RAY_Y - i;
+            composer.setPixel(5 - i, top, RAY_RGB);
+            composer.setPixel(CENTER_X, top, RAY_RGB);
+            composer.setPixel(14 + i, top, RAY_RGB);
+            int bottom = BOTTOM_RAY_Y + i;
+            composer.setPixel(6 - i, bottom, RAY_RGB);
+            composer.setPixel(CENTER_X, bottom, RAY_RGB);
+            composer.setPixel(13 + i, bottom, RAY_RGB);
+        }
+    }
+}
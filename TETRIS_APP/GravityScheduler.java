@@ -0,0 +1,148 @@
+package com.example.myapplication;
+
+// Gravity and lock delay for a GameEngine, run against a monotonic nanosecond clock on the thread
+// that drives the engine. Every row has a deadline one fall interval after the one before it, so
+// late frames do not push later rows back: update() drops every row that fell due since the last
+// call, which is several rows per frame once the interval gets shorter than a frame. The interval
+// shrinks with the level. A landed block locks after a lock delay, which each move or rotation
+// restarts, MAX_LOCK_RESETS times until the block falls lower than it has been; a block that lands
+// with no resets left locks straight away. After a stall at most MAX_CATCH_UP_NANOS of
+// gravity is replayed and the rest is skipped. How late each row falls against its deadline is
+// kept in a histogram.
+public class GravityScheduler {
+    public static final long BASE_FALL_NANOS = 500_000_000L; // Level 0, one row every half second
+    public static final long MIN_FALL_NANOS = 100_000L; // Past this the board fills in a frame anyway
+    public static final long DEFAULT_LOCK_DELAY_NANOS = 500_000_000L;
+    public static final int MAX_LOCK_RESETS = 15; // Moves cannot hold a block up forever
+    public static final long MAX_CATCH_UP_NANOS = 100_000_000L;
+
+    private final GameEngine engine;
+    // 0.1 ms buckets up to 100 ms
+    private final LatencyHistogram jitter = new LatencyHistogram(100_000L, 1000);
+    private long lockDelayNanos = DEFAULT_LOCK_DELAY_NANOS;
+    private long nextFallNanos; // Deadline of the next row
+    private long lockDeadlineNanos; // When the landed block locks, valid while landed
+    private boolean landed;
+    private int lockResets;
+    private int lowestRow; // Lowest row the current block has reached
+    private long seenMoves;
+    private long seenStackVersion;
+    private long stalls;
+
+    public GravityScheduler(GameEngine engine) {
+        this.engine = engine;
+    }
+
+    // Rows fall every fallIntervalNanos(level): the guideline curve (0.8 - 0.007 * level) ^ level
+    // scaled to start from BASE_FALL_NANOS, about 130 ms at level 5 and 20 ms at level 10
+    public static long fallIntervalNanos(int level) {
+        double seconds = Math.pow(0.8 - 0.007 * Math.min(level, 100), level);
+        return Math.max(MIN_FALL_NANOS, (long) (BASE_FALL_NANOS * seconds));
+    }
+
+    public void setLockDelay(long lockDelayNanos) {
+        this.lockDelayNanos = lockDelayNanos;
+    }
+
+    // Lateness of each row against its deadline
+    public LatencyHistogram getJitter() {
+        return jitter;
+    }
+
+    // Updates that skipped gravity after a stall
+    public long getStalls() {
+        return stalls;
+    }
+
+    // Start the clock from now, forgetting any time the loop was stopped
+    public void start(long nowNanos) {
+        newBlock(nowNanos);
+    }
+
+    // Progress of the current block towards its next row, 0..1, for drawing it between rows
+    public float fallProgress(long nowNanos) {
+        if (landed) {
+            return 0;
+        }
+        long interval = fallIntervalNanos(engine.getLevel());
+        long elapsed = interval - (nextFallNanos - nowNanos);
+        return Math.max(0, Math.min(1, (float) elapsed / interval));
+    }
+
+    // Apply every fall and lock that came due by now. Returns true if the board changed.
+    public boolean update(long nowNanos) {
+        long late = nowNanos - (landed ? lockDeadlineNanos : nextFallNanos);
+        if (late > MAX_CATCH_UP_NANOS) {
+            // Move the clock up to the end of the stall, less the time we are willing to replay
+            nextFallNanos += late - MAX_CATCH_UP_NANOS;
+            lockDeadlineNanos += late - MAX_CATCH_UP_NANOS;
+            stalls++;
+        }
+        checkInputs(nowNanos);
+        boolean changed = false;
+        while (!engine.isGameOver()) {
+            if (landed) {
+                if (nowNanos < lockDeadlineNanos) {
+                    break;
+                }
+                engine.lock();
+                changed = true;
+                // The next block starts its first row from when this one locked
+                newBlock(lockDeadlineNanos);
+            } else if (engine.isLanded()) {
+                land(nowNanos); // Spawned on the stack or moved onto a ledge
+            } else {
+                if (nowNanos < nextFallNanos) {
+                    break;
+                }
+                long dueNanos = nextFallNanos;
+                jitter.record(nowNanos - dueNanos);
+                engine.fall();
+                changed = true;
+                nextFallNanos += fallIntervalNanos(engine.getLevel());
+                int row = engine.getCurrentBlock().getRow();
+                if (row > lowestRow) {
+                    lowestRow = row;
+                    lockResets = 0;
+                }
+                if (engine.isLanded()) {
+                    land(dueNanos);
+                }
+            }
+        }
+        return changed;
+    }
+
+    // Catch up with what inputs did since the last update: a hard drop locks and spawns a block,
+    // a move or rotation restarts the lock delay, and a block moved off a ledge falls again
+    private void checkInputs(long nowNanos) {
+        if (engine.getStackVersion() != seenStackVersion) {
+            newBlock(nowNanos);
+        }
+        if (engine.getMoveCount() != seenMoves && landed) {
+            lockResets++;
+            if (!engine.isLanded()) {
+                // Stepping off a ledge uses up a reset too, or moving back and forth would never lock
+                landed = false;
+                nextFallNanos = nowNanos + fallIntervalNanos(engine.getLevel());
+            } else if (lockResets <= MAX_LOCK_RESETS) {
+                lockDeadlineNanos = nowNanos + lockDelayNanos;
+            }
+        }
+        seenMoves = engine.getMoveCount();
+    }
+
+    private void land(long atNanos) {
+        landed = true;
+        lockDeadlineNanos = lockResets < MAX_LOCK_RESETS ? atNanos + lockDelayNanos : atNanos;
+    }
+
+    private void newBlock(long atNanos) {
+        landed = false;
+        lockResets = 0;
+        lowestRow = engine.getCurrentBlock().getRow();
+        seenStackVersion = engine.getStackVersion();
+        seenMoves = engine.getMoveCount();
+        nextFallNanos = atNanos + fallIntervalNanos(engine.getLevel());
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.myapplication;
+
+// Turns button presses and releases into engine inputs on the game thread. Events come in through
+// an InputQueue and are applied when the game loop drains it at the start of a frame, before that
+// frame's gravity ticks, so an input and a tick never race. Holding left or right moves once on the
+// press, again after the delayed auto shift (DAS) and then once every auto repeat rate (ARR); an ARR
+// of 0 slides straight to the wall. When both are held the later press wins. Rotate and drop act on
+// the press only. Every press that changes the board is timed from the touch to the change.
+public class InputController implements InputQueue.InputSink {
+    public static final long DEFAULT_DAS_NANOS = 170_000_000L;
+    public static final long DEFAULT_ARR_NANOS = 50_000_000L;
+    private static final int MAX_REPEATS = BoardGrid.NUM_COLS; // Per update; no slide is longer than the board is wide
+
+    private final GameEngine engine;
+    private final InputQueue queue;
+    // 0.25 ms buckets up to 100 ms
+    private final LatencyHistogram latency = new LatencyHistogram(250_000L, 400);
+    private long dasNanos = DEFAULT_DAS_NANOS;
+    private long arrNanos = DEFAULT_ARR_NANOS;
+    private boolean leftHeld;
+    private boolean rightHeld;
+    private GameEngine.Input shifting = GameEngine.Input.NONE; // Direction being repeated, NONE if neither
+    private long nextShiftNanos;
+    private long seenOverflows;
+    private boolean changed; // Set by anything applied during the current update
+
+    public InputController(GameEngine engine, InputQueue queue) {
+        this.engine = engine;
+        this.queue = queue;
+    }
+
+    public void setDelayedAutoShift(long dasNanos) {
+        this.dasNanos = dasNanos;
+    }
+
+    public void setAutoRepeatRate(long arrNanos) {
+        this.arrNanos = arrNanos;
+    }
+
+    // Press to board change, for presses that changed it
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    // Apply everything queued, then any auto repeats due by now. Returns true if the board changed.
+    public boolean update(long nowNanos) {
+        changed = false;
+        queue.drain(this);
+        if (queue.getOverflows() != seenOverflows) {
+            // A release may have been lost; let go of everything rather than slide forever
+            seenOverflows = queue.getOverflows();
+            releaseAll();
+        }
+        if (shifting != GameEngine.Input.NONE) {
+            autoRepeat(nowNanos);
+        }
+        return changed;
+    }
+
+    // Forget queued events and held buttons, for when the game loop starts after a pause
+    public void reset() {
+        queue.clear();
+        seenOverflows = queue.getOverflows();
+        releaseAll();
+    }
+
+    @Override
+    public void onInput(GameEngine.Input input, boolean down, long timeNanos) {
+        if (input == GameEngine.Input.LEFT) {
+            leftHeld = down;
+        } else if (input == GameEngine.Input.RIGHT) {
+            rightHeld = down;
+        }
+        if (down) {
+            if (apply(input)) {
+                latency.record(System.nanoTime() - timeNanos);
+            }
+            if (input == GameEngine.Input.LEFT || input == GameEngine.Input.RIGHT) {
+                startShift(input, timeNanos);
+            }
+        } else if (input == shifting) {
+            // Carry on in the other direction if it is still held, after a fresh delay
+            if (input == GameEngine.Input.LEFT && rightHeld) {
+                startShift(GameEngine.Input.RIGHT, timeNanos);
+            } else if (input == GameEngine.Input.RIGHT && leftHeld) {
+                startShift(GameEngine.Input.LEFT, timeNanos);
+            } else {
+                shifting = GameEngine.Input.NONE;
+            }
+        }
+    }
+
+    private void startShift(GameEngine.Input direction, long timeNanos) {
+        shifting = direction;
+        nextShiftNanos = timeNanos + dasNanos;
+    }
+
+    private void autoRepeat(long nowNanos) {
+        int repeats = 0;
+        while (nowNanos >= nextShiftNanos && repeats < MAX_REPEATS) {
+            apply(shifting);
+            nextShiftNanos += arrNanos;
+            repeats++;
+        }
+        if (repeats == MAX_REPEATS && arrNanos > 0) {
+            nextShiftNanos = nowNanos + arrNanos; // Skip the backlog of a long stall
+        }
+    }
+
+    private boolean apply(GameEngine.Input input) {
+        boolean moved = engine.apply(input);
+        changed |= moved;
+        return moved;
+    }
+
+    private void releaseAll() {
+        leftHeld = false;
+        rightHeld = false;
+        shifting = GameEngine.Input.NONE;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.myapplication;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Button presses and releases on their way from the UI thread to the game thread. A ring of
+// preallocated slots with one writer and one reader, so neither side locks or allocates: the
+// writer fills a slot and then publishes it by moving the tail, the reader consumes slots up to
+// the tail and then frees them by moving the head.
+public class InputQueue {
+    public static final int DEFAULT_CAPACITY = 64; // Far more than a hand taps between two frames
+
+    // Receives drained events in the order they were offered
+    public interface InputSink {
+        void onInput(GameEngine.Input input, boolean down, long timeNanos);
+    }
+
+    private static final GameEngine.Input[] INPUTS = GameEngine.Input.values();
+
+    private final int[] codes; // Input ordinal << 1 | 1 when pressed
+    private final long[] times;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Next slot to read, written by the reader only
+    private final AtomicLong tail = new AtomicLong(); // Next slot to write, written by the writer only
+    private final AtomicLong overflows = new AtomicLong();
+
+    public InputQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // capacity is rounded up to a power of two
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        codes = new int[size];
+        times = new long[size];
+        mask = size - 1;
+    }
+
+    // Writer side. Returns false and counts an overflow if the reader is a full ring behind.
+    public boolean offer(GameEngine.Input input, boolean down, long timeNanos) {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            overflows.incrementAndGet();
+            return false;
+        }
+        int slot = (int) t & mask;
+        codes[slot] = input.ordinal() << 1 | (down ? 1 : 0);
+        times[slot] = timeNanos;
+        tail.lazySet(t + 1); // Publishes the slot writes above to the reader
+        return true;
+    }
+
+    // Reader side. Hands every queued event to sink, oldest first; returns how many there were.
+    public int drain(InputSink sink) {
+        long h = head.get();
+        long t = tail.get();
+        for (long i = h; i < t; i++) {
+            int slot = (int) i & mask;
+            sink.onInput(INPUTS[codes[slot] >> 1], (codes[slot] & 1) != 0, times[slot]);
+        }
+        head.lazySet(t); // Frees the slots for the writer
+        return (int) (t - h);
+    }
+
+    // Reader side. Throw away whatever is queued.
+    public void clear() {
+        head.lazySet(tail.get());
+    }
+
+    // Events dropped because the queue was full; a dropped release leaves a button looking held
+    public long getOverflows() {
+        return overflows.get();
+    }
+}
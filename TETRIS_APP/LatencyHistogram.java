@@ -0,0 +1,69 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// Durations counted in fixed-width buckets, so percentiles come out without keeping every sample
+// and recording never allocates. Anything past the last bucket is counted in it and still shows
+// in the maximum. Not thread safe: record and read on the thread that owns it.
+public class LatencyHistogram {
+    private final long bucketNanos;
+    private final long[] counts;
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    public LatencyHistogram(long bucketNanos, int buckets) {
+        this.bucketNanos = bucketNanos;
+        this.counts = new long[buckets];
+    }
+
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        counts[(int) Math.min(counts.length - 1, nanos / bucketNanos)]++;
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getMeanNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    // Upper edge of the bucket holding the sample at fraction p (0..1), capped at the maximum
+    public long percentileNanos(double p) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(maxNanos, (i + 1) * bucketNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    // One line for the log: sample count, p50, p99 and max in milliseconds
+    public String summary(String name) {
+        return String.format(Locale.ROOT, "%s: %d samples, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                name, count, percentileNanos(0.50) / 1e6, percentileNanos(0.99) / 1e6, maxNanos / 1e6);
+    }
+}
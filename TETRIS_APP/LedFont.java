@@ -0,0 +1,77 @@
+package com.example.myapplication;
+
+// Bitmap font for the wall, the glyphs the firmware used to carry as hard-coded LED lists. Digits
+// are 3 x 6 pixels; letters are 3 x 5, O is 4 wide. Glyphs sit one pixel apart.
+public final class LedFont {
+    public static final int SPACING = 1;
+
+    private static final String DIGITS = "0123456789";
+    private static final String[][] DIGIT_GLYPHS = {
+            {"XXX", "X.X", "X.X", "X.X", "X.X", "XXX"},
+            {"XX.", ".X.", ".X.", ".X.", ".X.", ".X."},
+            {"XXX", "..X", "XXX", "X..", "X..", "XXX"},
+            {"XXX", "..X", "XXX", "..X", "..X", "XXX"},
+            {"X.X", "X.X", "XXX", "..X", "..X", "..X"},
+            {"XXX", "X..", "XXX", "..X", "..X", "XXX"},
+            {"XXX", "X..", "XXX", "X.X", "X.X", "XXX"},
+            {"XXX", "..X", "..X", "..X", "..X", "..X"},
+            {"XXX", "X.X", "XXX", "X.X", "X.X", "XXX"},
+            {"XXX", "X.X", "XXX", "..X", "..X", "XXX"}
+    };
+
+    private static final String LETTERS = "CEIORSUY";
+    private static final String[][] LETTER_GLYPHS = {
+            {".XX", "X..", "X..", "X..", ".XX"},
+            {"XXX", "X..", "XXX", "X..", "XXX"},
+            {"XXX", ".X.", ".X.", ".X.", "XXX"},
+            {".XX.", "X..X", "X..X", "X..X", ".XX."},
+            {"XXX", "X.X", "XX.", "X.X", "X.X"},
+            {"XXX", "X..", "XXX", "..X", "XXX"},
+            {"X.X", "X.X", "X.X", "X.X", "XXX"},
+            {"X.X", "X.X", "X.X", ".X.", ".X."}
+    };
+
+    private LedFont() {
+    }
+
+    // Width in pixels of a line of text, spacing included
+    public static int width(String text) {
+        int width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            width += glyph(text.charAt(i))[0].length() + SPACING;
+        }
+        return Math.max(0, width - SPACING);
+    }
+
+    // Left edge that centers text on the wall, rounding right like the original layout
+    public static int centerX(String text) {
+        return (LedLayout.WIDTH - width(text) + 1) / 2;
+    }
+
+    // Draw text with its top left corner at (x, y); pixels off the wall are skipped
+    public static void draw(LedFrameComposer composer, String text, int x, int y, int rgb) {
+        for (int i = 0; i < text.length(); i++) {
+            String[] glyph = glyph(text.charAt(i));
+            for (int row = 0; row < glyph.length; row++) {
+                for (int col = 0; col < glyph[row].length(); col++) {
+                    if (glyph[row].charAt(col) == 'X') {
+                        composer.setPixel(x + col, y + row, rgb);
+                    }
+                }
+            }
+            x += glyph[0].length() + SPACING;
+        }
+    }
+
+    private static String[] glyph(char c) {
+        int index = DIGITS.indexOf(c);
+        if (index >= 0) {
+            return DIGIT_GLYPHS[index];
+        }
+        index = LETTERS.indexOf(Character.toUpperCase(c));
+        if (index >= 0) {
+            return LETTER_GLYPHS[index];
+        }
+        throw new IllegalArgumentException("No glyph for '" + c + "'");
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+// Framebuffer for the whole wall, for screens composed on the phone that the wall only copies onto
+// its strip, such as the game over screen. Draw into it with the wall's pixel coordinates (see
+// LedLayout), then encodeChanges writes a TYPE_LEDS frame with just the LED ranges that differ from
+// what the wall was last sent. The board itself still goes out as cell frames, which the wall
+// expands to LEDs: as ranges it would cost over five times the bytes.
+public class LedFrameComposer {
+    // An unchanged LED inside a range costs 3 bytes, the same as starting a new range, so ranges
+    // are joined across gaps up to this long
+    private static final int MAX_GAP = 1;
+    private static final int UNKNOWN = -1; // No color matches it, so every LED counts as changed
+
+    private final int[] frame = new int[LedLayout.NUM_LEDS]; // 0xRRGGBB by strip index
+    private final int[] shown = new int[LedLayout.NUM_LEDS]; // What the wall shows, as far as we know
+
+    public LedFrameComposer() {
+        invalidate();
+    }
+
+    // Turn every pixel of the frame off
+    public void clear() {
+        Arrays.fill(frame, 0);
+    }
+
+    // Set one pixel; pixels off the wall are ignored so text can run over an edge
+    public void setPixel(int x, int y, int rgb) {
+        if (LedLayout.isInside(x, y)) {
+            frame[LedLayout.ledAt(x, y)] = rgb & 0xFFFFFF;
+        }
+    }
+
+    public void setCell(int row, int col, int rgb) {
+        for (int corner = 0; corner < LedLayout.LEDS_PER_CELL; corner++) {
+            frame[LedLayout.cellLed(row, col, corner)] = rgb & 0xFFFFFF;
+        }
+    }
+
+    // Draw every cell of a board, empty ones included, with ARGB colors from palette
+    public void drawBoard(BoardSnapshot board, int[] palette) {
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            for (int col = 0; col < BoardGrid.NUM_COLS; col++) {
+                setCell(row, col, palette[board.isOccupied(row, col) ? board.colorAt(row, col) : Palette.EMPTY]);
+            }
+        }
+    }
+
+    public int getLed(int index) {
+        return frame[index];
+    }
+
+    // The wall got the current frame some other way, such as board frames; changes count from here
+    public void markShown() {
+        System.arraycopy(frame, 0, shown, 0, frame.length);
+    }
+
+    // The wall's LEDs are unknown (a new connection, a lost frame); the next frame repaints them all
+    public void invalidate() {
+        Arrays.fill(shown, UNKNOWN);
+    }
+
+    // Encode the LEDs that changed since the last call into one TYPE_LEDS frame and count them as
+    // shown. Returns the frame length, 0 if nothing changed. Call invalidate if the send fails.
+    public int encodeChanges(FrameEncoder encoder) {
+        encoder.begin(WireFormat.TYPE_LEDS);
+        int ranges = 0;
+        int led = 0;
+        while (led < LedLayout.NUM_LEDS) {
+            if (frame[led] == shown[led]) {
+                led++;
+                continue;
+            }
+            int first = led;
+            int end = led + 1; // One past the last changed LED of the range
+            for (int next = end; next < LedLayout.NUM_LEDS && next - first < WireFormat.MAX_LED_RANGE; next++) {
+                if (frame[next] != shown[next]) {
+                    end = next + 1;
+                } else if (next - end >= MAX_GAP) {
+                    break;
+                }
+            }
+            encoder.putLedRange(frame, first, end - first);
+            System.arraycopy(frame, first, shown, first, end - first);
+            ranges++;
+            led = end;
+        }
+        return ranges > 0 ? encoder.finish() : 0;
+    }
+}
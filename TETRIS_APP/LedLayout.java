@@ -0,0 +1,54 @@
+package com.example.myapplication;
+
+// Where every pixel of the wall sits on the LED strip. The wall is 20 x 40 pixels on one strip that
+// snakes across it: pixel rows 0, 2, 4... run right to left, the rows between them left to right.
+// Every board cell is a 2x2 block of pixels. Both mappings are worked out once into tables, so
+// composing a frame is array lookups only.
+public final class LedLayout {
+    public static final int WIDTH = 20;
+    public static final int HEIGHT = 40;
+    public static final int NUM_LEDS = WIDTH * HEIGHT;
+    public static final int CELL_SIZE = 2; // Pixels per cell side
+    public static final int LEDS_PER_CELL = CELL_SIZE * CELL_SIZE;
+
+    // LED index of pixel (x, y) at y * WIDTH + x
+    private static final int[] PIXEL_LEDS = new int[NUM_LEDS];
+    // LED indices of cell (row, col) at (row * NUM_COLS + col) * LEDS_PER_CELL, in the order the
+    // firmware's calculateLEDIndex lists them
+    private static final int[] CELL_LEDS = new int[BoardGrid.NUM_ROWS * BoardGrid.NUM_COLS * LEDS_PER_CELL];
+
+    static {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                PIXEL_LEDS[y * WIDTH + x] = y % 2 == 0 ? y * WIDTH + (WIDTH - 1 - x) : y * WIDTH + x;
+            }
+        }
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            for (int col = 0; col < BoardGrid.NUM_COLS; col++) {
+                int base = (row * BoardGrid.NUM_COLS + col) * LEDS_PER_CELL;
+                int x = col * CELL_SIZE;
+                int y = row * CELL_SIZE;
+                CELL_LEDS[base] = PIXEL_LEDS[y * WIDTH + x];
+                CELL_LEDS[base + 1] = PIXEL_LEDS[y * WIDTH + x + 1];
+                CELL_LEDS[base + 2] = PIXEL_LEDS[(y + 1) * WIDTH + x + 1];
+                CELL_LEDS[base + 3] = PIXEL_LEDS[(y + 1) * WIDTH + x];
+            }
+        }
+    }
+
+    private LedLayout() {
+    }
+
+    public static boolean isInside(int x, int y) {
+        return x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT;
+    }
+
+    public static int ledAt(int x, int y) {
+        return PIXEL_LEDS[y * WIDTH + x];
+    }
+
+    // LED corner (0..3) of a board cell
+    public static int cellLed(int row, int col, int corner) {
+        return CELL_LEDS[(row * BoardGrid.NUM_COLS + col) * LEDS_PER_CELL + corner];
+    }
+}
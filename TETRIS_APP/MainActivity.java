@@ -1,33 +1,83 @@
 package com.example.myapplication;
 
 import androidx.appcompat.app.AppCompatActivity;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.ServiceConnection;
 import android.os.Bundle;
 import android.os.Handler;
-import android.os.Looper;
+import android.os.IBinder;
 import android.util.Log;
+import android.view.MotionEvent;
 import android.view.View;
 import android.widget.ImageButton;
 import android.widget.TextView;
 
-import java.util.List;
-
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.WebSocket;
-import okhttp3.WebSocketListener;
+import okio.ByteString;
 
 public class MainActivity extends AppCompatActivity {
     private GameBoardView gameBoardView;
-    private WebSocket webSocket;
-    private OkHttpClient client;
-    private GameBoardState previousState;
+    private volatile WallConnectionService wall; // Bound while the activity is started
+    // Ships the difference from what was last sent, holding frames back while the link is behind
+    private final FrameSender frameSender = new FrameSender(new FrameSender.FrameSink() {
+        @Override
+        public long queuedBytes() {
+            WallConnectionService connection = wall;
+            return connection != null ? connection.queueSize() : 0;
+        }
+
+        @Override
+        public boolean send(byte[] data, int offset, int length) {
+            WallConnectionService connection = wall;
+            return connection != null && connection.send(ByteString.of(data, offset, length));
+        }
+    });
+    private final WallConnectionService.Listener wallListener = new WallConnectionService.Listener() {
+        @Override
+        public void onOpen() {
+            sendPalette(); // Colors first, frames only carry indices into them
+            postResync(); // The wall may have missed anything sent before, or show another screen
+        }
+
+        @Override
+        public void onMessage(String text) {
+            Log.d(TAG, "WebSocket message received: " + text);
+            if (text.equals(WireFormat.RESYNC)) {
+                // The wall missed a frame; one keyframe puts it back in step
+                postResync();
+            }
+        }
+    };
+    private final ServiceConnection wallConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            wall = ((WallConnectionService.LocalBinder) service).getService();
+            wall.addListener(wallListener);
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            wall = null;
+        }
+    };
     private Handler handler;
-    private Runnable gameBoardDataSender;
+    private WakeScheduler wakeScheduler; // The game thread's timed work; frames and animation
+    private WakeScheduler.Task frameFlush;
+    // Board changes within one frame window go out together as a single frame; game thread only
+    private final FrameWindow frameWindow = new FrameWindow();
     private final String TAG = "WebSocketData";
-    private boolean gameOverFlag = false;
+    private boolean gameOverFlag = false; // Game thread only, like everything the sender touches
+    // The game over screen is composed here and streamed as LED ranges; game thread only
+    private final LedFrameComposer ledComposer = new LedFrameComposer();
+    private final FrameEncoder ledEncoder = new FrameEncoder();
+    private WakeScheduler.Task gameOverAnimator;
+    private int finalScore;
+    private int animationStep;
+    private int animationFrames; // Steps shown since the animation started
+    // The color table never changes, so its frame is encoded once and sent on every connection
+    private final ByteString paletteFrame = encodePalette(Palette.colors());
 
     private TextView scoreTextView;
-    private int scoreCounter = 0;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -39,218 +89,232 @@ public class MainActivity extends AppCompatActivity {
         gameBoardView = findViewById(R.id.game_board);
         gameBoardView.setScoreTextView(scoreTextView);
 
-        previousState = gameBoardView.getGameBoardState();
-
-        // Connect to ESP32 and send gameBoardView
-        connectWebSocket();
-
         // Initialize ImageButtons
         ImageButton leftButton = findViewById(R.id.left_button);
         ImageButton rightButton = findViewById(R.id.right_button);
         ImageButton rotateButton = findViewById(R.id.rotate_button);
         ImageButton downButton = findViewById(R.id.down_button);
 
-        // Set event listeners for the buttons
-        leftButton.setOnClickListener(new View.OnClickListener() {
+        // Set event listeners for the buttons: presses and releases go to the game thread, which
+        // repeats held left and right
+        bindButton(leftButton, GameEngine.Input.LEFT);
+        bindButton(rightButton, GameEngine.Input.RIGHT);
+        bindButton(rotateButton, GameEngine.Input.ROTATE);
+        bindButton(downButton, GameEngine.Input.DROP);
+
+        //handler to send the game board data, on the game thread that owns the board
+        handler = gameBoardView.getGameHandler();
+        wakeScheduler = gameBoardView.getWakeScheduler();
+        frameFlush = new WakeScheduler.Task() {
             @Override
-            public void onClick(View v) {
-                moveBlockLeft();
+            public void run(long nowNanos) {
+                frameWindow.onFrame(nowNanos / 1_000_000);
+                // Check if gameOverFlag is false
+                if (!gameOverFlag) {
+                    // Gather the game board state and send what changed
+                    sendGameBoardState();
+                } else {
+                    Log.d(TAG, "Game Over - Not sending data");
+                }
             }
-        });
+        };
 
-        rightButton.setOnClickListener(new View.OnClickListener() {
+        // Step the game over screen, sending only the LEDs each step changes, until it settles on
+        // the last step and nothing needs waking any more
+        gameOverAnimator = new WakeScheduler.Task() {
             @Override
-            public void onClick(View v) {
-                moveBlockRight();
+            public void run(long nowNanos) {
+                GameOverScreen.draw(ledComposer, finalScore, animationStep);
+                sendLeds();
+                animationStep = (animationStep + 1) % GameOverScreen.ANIMATION_STEPS;
+                if (++animationFrames < GameOverScreen.ANIMATION_LOOPS * GameOverScreen.ANIMATION_STEPS) {
+                    wakeScheduler.schedule(this, nowNanos + GameOverScreen.ANIMATION_STEP_MS * 1_000_000L);
+                }
             }
-        });
+        };
 
-        rotateButton.setOnClickListener(new View.OnClickListener() {
+        // Push a frame when the board changes instead of polling it
+        gameBoardView.setBoardListener(new GameEngine.BoardListener() {
             @Override
-            public void onClick(View v) {
-                rotateBlock();
+            public void onBoardChanged() {
+                scheduleFrame();
             }
         });
+    }
 
-        downButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                DropBlock();
-            }
-        });
+    // Called on the game thread. The first change in a window schedules the send and later
+    // changes ride along with it, so the wall gets at most one frame per window.
+    private void scheduleFrame() {
+        if (gameOverFlag) {
+            return;
+        }
+        if (frameWindow.isScheduled() && !wakeScheduler.isScheduled(frameFlush)) {
+            frameWindow.cancel(); // The flush was called off when the game loop stopped
+        }
+        long nowNanos = System.nanoTime();
+        long wait = frameWindow.schedule(nowNanos / 1_000_000);
+        if (wait >= 0) {
+            wakeScheduler.schedule(frameFlush, nowNanos + wait * 1_000_000);
+        }
+    }
 
-        //handler to periodically send the game board data
-        handler = new Handler(Looper.getMainLooper());
-        gameBoardDataSender = new Runnable() {
+    // onGameOver method to handle the game over state
+    public void onGameOver(final int score) {
+        handler.post(new Runnable() {
             @Override
             public void run() {
-                // Check if gameOverFlag is false
-                if (!gameOverFlag) {
-                    // Gather the game board state and send it over WebSocket
-                    String gameBoardState = generateGameBoardState();
-
-                    // Log the game board state being sent
-                    Log.d(TAG, "Sending game board data: " + gameBoardState);
-
-                    // Send the game board state over WebSocket
-                    if (webSocket != null) {
-                        webSocket.send(gameBoardState);
-                    }
-
-                    // Schedule the next update
-                    handler.postDelayed(this, 500);
-                } else {
-                    Log.d(TAG, "Game Over - Not sending data");
-                }
+                gameOverFlag = true;  // Set the flag to true
+                Log.d(TAG, "Game Over - Flag set to true");
+                wakeScheduler.cancel(frameFlush);  // Stop sending game board data
+                frameWindow.cancel();
+                // The game loop stopped before the flush for the topping-out lock came due, so send
+                // the final board now; if the link is behind, the score screen covers it instead
+                sendGameBoardState();
+                // Start from the board the wall shows, so the score screen only sends what differs
+                ledComposer.drawBoard(frameSender.getSentState(), Palette.colors());
+                ledComposer.markShown();
+                finalScore = score;
+                animationStep = 0;
+                animationFrames = 0;
+                gameOverAnimator.run(System.nanoTime());
             }
-        };
+        });
     }
 
-    // onGameOver method to handle the game over state
-    public void onGameOver() {
-        gameOverFlag = true;  // Set the flag to true
-        handler.removeCallbacks(gameBoardDataSender);  // Stop sending game board data
-        Log.d(TAG, "Game Over - Flag set to true");
+    // Send what changed on the composed wall; if the send fails the next one repaints everything
+    private void sendLeds() {
+        int length = ledComposer.encodeChanges(ledEncoder);
+        if (length == 0) {
+            return;
+        }
+        WallConnectionService connection = wall;
+        if (connection == null || !connection.send(ByteString.of(ledEncoder.getBuffer(), 0, length))) {
+            ledComposer.invalidate();
+        }
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        // Start sending game board data when the activity is resumed
-        if (!gameOverFlag) {
-            handler.post(gameBoardDataSender);
-        } else {
-            Log.d(TAG, "Game Over - Not resuming data sending");
-        }
+    protected void onStart() {
+        super.onStart();
+        // The opening screen is still bound, so this picks up its open connection to the ESP32
+        bindService(new Intent(this, WallConnectionService.class), wallConnection, BIND_AUTO_CREATE);
     }
 
     @Override
-    protected void onPause() {
-        super.onPause();
-        // Stop sending game board data when the activity is paused
-        handler.removeCallbacks(gameBoardDataSender);
+    protected void onStop() {
+        super.onStop();
+        WallConnectionService connection = wall;
+        if (connection != null) {
+            connection.removeListener(wallListener);
+        }
+        wall = null;
+        unbindService(wallConnection);
     }
 
-    private void connectWebSocket() {
-        OkHttpClient client = new OkHttpClient();
-        Request request = new Request.Builder().url("ws://192.168.4.1:81").build();
-        webSocket = client.newWebSocket(request, new WebSocketListener() {
+    @Override
+    protected void onResume() {
+        super.onResume();
+        gameBoardView.resume();
+        // Bring the wall up to date once; after that frames follow board changes
+        handler.post(new Runnable() {
             @Override
-            public void onMessage(WebSocket webSocket, String text) {
-                super.onMessage(webSocket, text);
-                Log.d(TAG, "WebSocket message received: " + text);
-                if (text.startsWith("GAMEOVER")) {
-                    gameOverFlag = true;  // Set the flag to true on GAME_OVER
-                    handler.removeCallbacks(gameBoardDataSender); // Stop sending data
-                    Log.d(TAG, "Game Over - Flag set to true");
+            public void run() {
+                if (!gameOverFlag) {
+                    scheduleFrame();
+                } else {
+                    Log.d(TAG, "Game Over - Not resuming data sending");
+                    animationFrames = 0; // Rescheduling replaces the old deadline, so one animation runs
+                    gameOverAnimator.run(System.nanoTime());
                 }
             }
-            @Override
-            public void onOpen(WebSocket webSocket, okhttp3.Response response) {
-                Log.d(TAG, "WebSocket connection opened");
-                super.onOpen(webSocket, response);
-            }
-            @Override
-            public void onFailure(WebSocket webSocket, Throwable t, okhttp3.Response response) {
-                Log.e(TAG, "WebSocket connection error", t);
-                super.onFailure(webSocket, t, response);
-            }
         });
-
-        // Pass the WebSocket to the GameBoardView after it's initialized
-        gameBoardView.setWebSocket(webSocket);
     }
 
-    private String generateGameBoardState() {
-        if (gameOverFlag) {
-            Log.d(TAG, "Game Over - No data generated");
-            return ""; // Do not send any data if the game is over
-        }
-
-        StringBuilder delta = new StringBuilder();
-        // Get the updated blocks on the board from the GameBoardState
-        GameBoardState currentState = gameBoardView.getGameBoardState();
-        List<Block> currentBlocks = currentState.getBlocks();
-
-        // Iterate through the updated blocks
-        for (Block block : currentBlocks) {
-            List<Cell> cells = block.getCells();
-            for (Cell cell : cells) {
-                int row = cell.getRow();
-                int col = cell.getCol();
-                String color = cell.getColor();
-
-                delta.append("(")
-                        .append(row).append(",")
-                        .append(col).append(",")
-                        .append("0,")
-                        .append(color).append("),");
-            }
-        }
-
-        // Check for cells that are no longer occupied
-        List<Block> prev = previousState.getBlocks();
-        for (Block block : prev) {
-            List<Cell> cells = block.getCells();
-            for (Cell cell : cells) {
-                int row = cell.getRow();
-                int col = cell.getCol();
-                if (!isOccupiedInCurrentState(row, col)) {
-                    delta.append("(")
-                            .append(row).append(",")
-                            .append(col).append(",")
-                            .append("1,")
-                            .append("000000")
-                            .append("),");
-                }
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Stop the game even if its surface stays up, under a dialog or beside another window.
+        // That also calls off every timed task, so the game thread sleeps until onResume.
+        gameBoardView.pause();
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                frameWindow.cancel();
             }
-        }
-
-        updatePreviousState(currentBlocks);
+        });
+    }
 
-        if (delta.length() > 0) {
-            delta.setLength(delta.length() - 1);
+    // Give the wall the color table; it repaints the board without any cell frames
+    private void sendPalette() {
+        WallConnectionService connection = wall;
+        if (connection != null) {
+            connection.send(paletteFrame);
         }
+    }
 
-        return delta.toString();
+    private static ByteString encodePalette(int[] colors) {
+        FrameEncoder encoder = new FrameEncoder();
+        encoder.encodePalette(colors);
+        return encoder.toByteString();
     }
 
-    private boolean isOccupiedInCurrentState(int newRow, int newCol) {
-        GameBoardState currentState = gameBoardView.getGameBoardState();
-        List<Block> curr = currentState.getBlocks();
-        for (Block block : curr) {
-            List<Cell> cells = block.getCells();
-            for (Cell cell : cells) {
-                int row = cell.getRow();
-                int col = cell.getCol();
-                if (row == newRow && col == newCol) {
-                    return true;
+    // Called from the network thread. Send the whole board in the next frame, even if it has not
+    // changed, and every LED of the game over screen in its next step, or at once if it has
+    // settled; the sender state belongs to the game thread, so the work is posted there.
+    private void postResync() {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                frameSender.requestKeyframe();
+                ledComposer.invalidate();
+                if (gameOverFlag && !wakeScheduler.isScheduled(gameOverAnimator)) {
+                    sendLeds(); // The animation has settled, nothing else would repaint the wall
                 }
+                scheduleFrame();
             }
-        }
-        return false;
+        });
     }
 
-    private void updatePreviousState(List<Block> currentBlocks) {
-        previousState.getBlocks().clear();
-        for (Block block : currentBlocks) {
-            previousState.addBlock(new Block(block));
+    // Send the board through frameSender. Held back frames are retried one window later so the
+    // wall catches up even if the board stops changing.
+    private void sendGameBoardState() {
+        FrameSender.Result result = frameSender.send(gameBoardView.getSnapshot());
+        switch (result) {
+            case SENT:
+                FrameEncoder frame = frameSender.getLastFrame();
+                Log.d(TAG, "Sent game board frame: " + frame.getCount() + " cells, " + frame.getLength() + " bytes");
+                break;
+            case MERGED:
+                Log.d(TAG, "WebSocket behind, merging frame (merged " + frameSender.getMergedFrames()
+                        + ", sent " + frameSender.getSentFrames() + ")");
+                scheduleFrame();
+                break;
+            case DROPPED:
+                Log.d(TAG, "WebSocket refused frame (dropped " + frameSender.getDroppedFrames() + ")");
+                break;
+            default:
+                break;
         }
     }
 
-    private void DropBlock() {
-        gameBoardView.dropCurrentBlock();
-    }
-
-    private void moveBlockLeft() {
-        gameBoardView.moveCurrentBlockLeft();
-    }
-
-    private void moveBlockRight() {
-        gameBoardView.moveCurrentBlockRight();
-    }
-
-    private void rotateBlock() {
-        gameBoardView.rotateCurrentBlock();
+    // Forward touch down and touch up on a button to the game, timestamped as they arrive
+    private void bindButton(ImageButton button, final GameEngine.Input input) {
+        button.setOnTouchListener(new View.OnTouchListener() {
+            @Override
+            public boolean onTouch(View v, MotionEvent event) {
+                switch (event.getActionMasked()) {
+                    case MotionEvent.ACTION_DOWN:
+                        gameBoardView.queueInput(input, true, System.nanoTime());
+                        break;
+                    case MotionEvent.ACTION_UP:
+                    case MotionEvent.ACTION_CANCEL:
+                        gameBoardView.queueInput(input, false, System.nanoTime());
+                        break;
+                    default:
+                        break;
+                }
+                return false; // Let the button draw its pressed state
+            }
+        });
     }
 }
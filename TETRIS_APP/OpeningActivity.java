@@ -1,18 +1,39 @@
 package com.example.myapplication;
 
+import android.content.ComponentName;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.os.Bundle;
+import android.os.IBinder;
 import android.view.View;
 import android.widget.ImageView;
 import androidx.appcompat.app.AppCompatActivity;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.WebSocket;
-import okhttp3.WebSocketListener;
 
 public class OpeningActivity extends AppCompatActivity {
-    private WebSocket webSocket;
-    private OkHttpClient client;
+    private volatile WallConnectionService wall; // Bound while the activity is started
+    // Blank the wall whenever this screen comes up or the connection comes back while it is up
+    private final WallConnectionService.Listener wallListener = new WallConnectionService.Listener() {
+        @Override
+        public void onOpen() {
+            turnOffLEDs();
+        }
+
+        @Override
+        public void onMessage(String text) {
+        }
+    };
+    private final ServiceConnection wallConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            wall = ((WallConnectionService.LocalBinder) service).getService();
+            wall.addListener(wallListener);
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            wall = null;
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -30,32 +51,26 @@ public class OpeningActivity extends AppCompatActivity {
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        connectWebSocket();
+    protected void onStart() {
+        super.onStart();
+        // Connects at launch; the game screen binds before this one unbinds, so the socket stays open
+        bindService(new Intent(this, WallConnectionService.class), wallConnection, BIND_AUTO_CREATE);
     }
 
-    private void connectWebSocket() {
-        client = new OkHttpClient();
-        Request request = new Request.Builder().url("ws://192.168.4.1:81").build();
-        webSocket = client.newWebSocket(request, new WebSocketListener() {
-            @Override
-            public void onOpen(WebSocket webSocket, okhttp3.Response response) {
-                super.onOpen(webSocket, response);
-                turnOffLEDs();
-            }
-
-            @Override
-            public void onFailure(WebSocket webSocket, Throwable t, okhttp3.Response response) {
-                super.onFailure(webSocket, t, response);
-            }
-        });
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (wall != null) {
+            wall.removeListener(wallListener);
+            wall = null;
+        }
+        unbindService(wallConnection);
     }
 
     private void turnOffLEDs() {
-        if (webSocket != null) {
-            webSocket.send("TURN_OFF");
-            webSocket.close(1000, "Closing after sending TURN_OFF");
+        WallConnectionService connection = wall;
+        if (connection != null) {
+            connection.send("TURN_OFF");
         }
     }
 }
@@ -0,0 +1,39 @@
+package com.example.myapplication;
+
+// Fixed color table shared by every piece. Cells, blocks and frames store an index into it instead
+// of a color; the wall gets the table itself once per connection in a palette frame.
+public final class Palette {
+    public static final int EMPTY = 0; // Index 0 is an unlit / empty cell
+
+    private static final int[] COLORS = {
+            0xFF000000, // EMPTY
+            0xFFFF0000, // RED
+            0xFF00FF00, // GREEN
+            0xFF0000FF, // BLUE
+            0xFFFFA500, // ORANGE
+            0xFF800080, // PURPLE
+            0xFFFF69B4  // PINK
+    };
+
+    private Palette() {
+    }
+
+    // Number of entries including EMPTY
+    public static int size() {
+        return COLORS.length;
+    }
+
+    // Number of colors a piece can be given, indices 1..pieceColorCount()
+    public static int pieceColorCount() {
+        return COLORS.length - 1;
+    }
+
+    public static int argb(int index) {
+        return COLORS[index];
+    }
+
+    // Copy of the table, to send to the wall or to adjust into a theme
+    public static int[] colors() {
+        return COLORS.clone();
+    }
+}
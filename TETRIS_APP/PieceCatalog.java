@@ -0,0 +1,129 @@
+package com.example.myapplication;
+
+// Data-driven piece definitions. Every piece is a 4x4 bitmask per rotation (bit r * 4 + c is
+// row r, column c of the piece box) plus a list of kick offsets to try when a rotation is blocked.
+// Adding a piece means adding a shape and a kick table here.
+public final class PieceCatalog {
+    public static final int O = 1;
+    public static final int I = 2;
+    public static final int T = 3;
+    public static final int L = 4;
+    public static final int S = 5;
+    public static final int J = 6;
+    public static final int Z = 7;
+
+    public static final int NUM_ROTATIONS = 4;
+
+    // Spawn shapes, rotated clockwise inside their square box for the other orientations
+    private static final String[][] SHAPES = {
+            null,
+            {"XX",
+             "XX"},
+            {".X..",
+             ".X..",
+             ".X..",
+             ".X.."},
+            {"XXX",
+             ".X.",
+             "..."},
+            {".X.",
+             ".X.",
+             ".XX"},
+            {".XX",
+             "XX.",
+             "..."},
+            {".X.",
+             ".X.",
+             "XX."},
+            {"XX.",
+             ".XX",
+             "..."}
+    };
+
+    // Kick offsets as {row, col} pairs, tried in order; the first one that fits wins
+    private static final int[][] NO_KICKS = {{0, 0}};
+    private static final int[][] BASIC_KICKS = {{0, 0}, {0, -1}, {0, 1}, {-1, 0}};
+    private static final int[][] LONG_KICKS = {{0, 0}, {0, -1}, {0, 1}, {0, -2}, {0, 2}, {-1, 0}};
+
+    private static final int[][][] KICKS = {
+            null, NO_KICKS, LONG_KICKS, BASIC_KICKS, BASIC_KICKS, BASIC_KICKS, BASIC_KICKS, BASIC_KICKS
+    };
+
+    private static final int[][] MASKS = new int[SHAPES.length][NUM_ROTATIONS];
+
+    static {
+        for (int type = 1; type < SHAPES.length; type++) {
+            String[] shape = SHAPES[type];
+            int size = shape.length;
+            for (int rotation = 0; rotation < NUM_ROTATIONS; rotation++) {
+                int mask = 0;
+                for (int r = 0; r < size; r++) {
+                    for (int c = 0; c < size; c++) {
+                        if (shape[r].charAt(c) == 'X') {
+                            // Rotate (r, c) clockwise by the rotation count inside the size x size box
+                            int row = r;
+                            int col = c;
+                            for (int i = 0; i < rotation; i++) {
+                                int tmp = row;
+                                row = col;
+                                col = size - 1 - tmp;
+                            }
+                            mask |= 1 << (row * 4 + col);
+                        }
+                    }
+                }
+                MASKS[type][rotation] = mask;
+            }
+        }
+    }
+
+    private PieceCatalog() {
+    }
+
+    // Number of piece types; valid types are 1..count()
+    public static int count() {
+        return SHAPES.length - 1;
+    }
+
+    public static int mask(int type, int rotation) {
+        return MASKS[type][rotation];
+    }
+
+    public static int[][] kicks(int type) {
+        return KICKS[type];
+    }
+
+    public static Orientation orientation(int type, int rotation) {
+        if (type == O) {
+            return Orientation.NONE;
+        }
+        return Orientation.values()[rotation];
+    }
+
+    // Bounds of a mask inside its 4x4 box
+    public static int minRow(int mask) {
+        return Integer.numberOfTrailingZeros(mask) / 4;
+    }
+
+    public static int maxRow(int mask) {
+        return (31 - Integer.numberOfLeadingZeros(mask)) / 4;
+    }
+
+    public static int minCol(int mask) {
+        for (int c = 0; c < 4; c++) {
+            if ((mask & (0x1111 << c)) != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    public static int maxCol(int mask) {
+        for (int c = 3; c >= 0; c--) {
+            if ((mask & (0x1111 << c)) != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.myapplication;
+
+// Source of piece types for the spawn queue. Implementations draw from a shared FastRandom
+// so the whole sequence is fixed by the game seed.
+public interface PieceGenerator {
+    enum Mode {
+        UNIFORM, // Every type equally likely on every draw
+        BAG      // Each run of PieceCatalog.count() pieces holds every type once
+    }
+
+    // Next PieceCatalog type, 1..PieceCatalog.count()
+    int nextType();
+
+    // Forget any partially used state, e.g. after the RNG has been reseeded
+    void reset();
+
+    static PieceGenerator create(Mode mode, FastRandom random) {
+        if (mode == Mode.BAG) {
+            return new BagGenerator(random);
+        }
+        return new UniformGenerator(random);
+    }
+
+    class UniformGenerator implements PieceGenerator {
+        private final FastRandom random;
+
+        public UniformGenerator(FastRandom random) {
+            this.random = random;
+        }
+
+        @Override
+        public int nextType() {
+            return 1 + random.nextInt(PieceCatalog.count());
+        }
+
+        @Override
+        public void reset() {
+        }
+    }
+
+    class BagGenerator implements PieceGenerator {
+        private final FastRandom random;
+        private final int[] bag = new int[PieceCatalog.count()];
+        private int index = bag.length; // Start empty so the first draw shuffles
+
+        public BagGenerator(FastRandom random) {
+            this.random = random;
+        }
+
+        @Override
+        public int nextType() {
+            if (index == bag.length) {
+                refill();
+            }
+            return bag[index++];
+        }
+
+        @Override
+        public void reset() {
+            index = bag.length;
+        }
+
+        // Fisher-Yates shuffle of every type into the bag
+        private void refill() {
+            for (int i = 0; i < bag.length; i++) {
+                bag[i] = i + 1;
+            }
+            for (int i = bag.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = bag[i];
+                bag[i] = bag[j];
+                bag[j] = tmp;
+            }
+            index = 0;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.myapplication;
+
+// Ring buffer of upcoming pieces. Each entry is a packed spawn spec (type, color, column) so
+// the preview can show several pieces ahead without creating Blocks for them.
+public class PieceQueue {
+    private final PieceGenerator generator;
+    private final FastRandom random;
+    private final int[] ring;
+    private int head; // Index of the next piece to spawn
+
+    public PieceQueue(PieceGenerator generator, FastRandom random, int lookahead) {
+        if (lookahead < 1) {
+            throw new IllegalArgumentException("lookahead must be at least 1");
+        }
+        this.generator = generator;
+        this.random = random;
+        this.ring = new int[lookahead];
+    }
+
+    // Refill every slot from the generator, e.g. at the start of a game
+    public void reset() {
+        generator.reset();
+        head = 0;
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = nextSpec();
+        }
+    }
+
+    // Remove the next spec and draw a new one onto the end of the queue
+    public int take() {
+        int spec = ring[head];
+        ring[head] = nextSpec();
+        head = (head + 1) % ring.length;
+        return spec;
+    }
+
+    // Spec i places ahead, 0 being the next piece to spawn
+    public int peek(int i) {
+        return ring[(head + i) % ring.length];
+    }
+
+    public int size() {
+        return ring.length;
+    }
+
+    private int nextSpec() {
+        int type = generator.nextType();
+        int color = 1 + random.nextInt(Palette.pieceColorCount());
+        // Randomly select the starting column so that the entire block fits within the board
+        int mask = PieceCatalog.mask(type, 0);
+        int minCol = PieceCatalog.minCol(mask);
+        int maxCol = PieceCatalog.maxCol(mask);
+        int col = random.nextInt(BoardGrid.NUM_COLS - (maxCol - minCol)) - minCol;
+        return pack(type, color, col);
+    }
+
+    public static int pack(int type, int color, int col) {
+        return type | (color << 8) | ((col & 0xFF) << 16);
+    }
+
+    public static int type(int spec) {
+        return spec & 0xFF;
+    }
+
+    public static int color(int spec) {
+        return (spec >> 8) & 0xFF;
+    }
+
+    public static int col(int spec) {
+        return (byte) (spec >> 16); // Sign-extend, the box column can be negative
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.myapplication;
+
+import android.os.Handler;
+
+// Timed work on the game thread: frame flushes and animations register a Task and give it a
+// deadline on the System.nanoTime() clock. Tasks never get a wake-up of their own. While the vsync
+// loop runs it pumps the scheduler every frame, and otherwise one Handler callback is posted for
+// the earliest deadline. Whatever wakes the thread also runs every task due within the
+// slack, so tasks that fall due together share one wake-up, and with nothing scheduled nothing
+// wakes the thread at all. Game thread only, including schedule and cancel.
+public class WakeScheduler {
+    public static final long DEFAULT_SLACK_NANOS = FrameWindow.SLACK_NANOS;
+    private static final int MAX_TASKS = 8;
+
+    public interface Task {
+        void run(long nowNanos);
+    }
+
+    private final Handler handler;
+    private final long slackNanos;
+    private final Task[] tasks = new Task[MAX_TASKS];
+    private final long[] deadlines = new long[MAX_TASKS];
+    private final boolean[] scheduled = new boolean[MAX_TASKS];
+    private final boolean[] due = new boolean[MAX_TASKS];
+    private int taskCount;
+    private boolean pumped; // The vsync loop calls runDue every frame
+    private boolean armed;
+    private long armedDeadline;
+    private long wakeups;
+    private long runs;
+
+    private final Runnable wake = new Runnable() {
+        @Override
+        public void run() {
+            armed = false;
+            wakeups++;
+            runDue(System.nanoTime());
+        }
+    };
+
+    public WakeScheduler(Handler handler) {
+        this(handler, DEFAULT_SLACK_NANOS);
+    }
+
+    public WakeScheduler(Handler handler, long slackNanos) {
+        this.handler = handler;
+        this.slackNanos = slackNanos;
+    }
+
+    // Run task at deadlineNanos, replacing any deadline it already had
+    public void schedule(Task task, long deadlineNanos) {
+        int i = indexOf(task);
+        deadlines[i] = deadlineNanos;
+        scheduled[i] = true;
+        arm();
+    }
+
+    public void cancel(Task task) {
+        int i = indexOf(task);
+        scheduled[i] = false;
+        due[i] = false;
+        arm();
+    }
+
+    // Drop every deadline, for when the game is paused
+    public void cancelAll() {
+        for (int i = 0; i < taskCount; i++) {
+            scheduled[i] = false;
+            due[i] = false;
+        }
+        arm();
+    }
+
+    public boolean isScheduled(Task task) {
+        return scheduled[indexOf(task)];
+    }
+
+    // Set while the vsync loop runs and calls runDue every frame, so no Handler wake-up is needed
+    public void setPumped(boolean pumped) {
+        this.pumped = pumped;
+        arm();
+    }
+
+    // Run every task due by nowNanos plus the slack, earliest first. A task that schedules itself
+    // again waits for the next wake-up even if its new deadline has passed.
+    public void runDue(long nowNanos) {
+        long limit = nowNanos + slackNanos;
+        for (int i = 0; i < taskCount; i++) {
+            due[i] = scheduled[i] && deadlines[i] - limit <= 0;
+        }
+        while (true) {
+            int next = -1;
+            for (int i = 0; i < taskCount; i++) {
+                if (due[i] && (next < 0 || deadlines[i] - deadlines[next] < 0)) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            due[next] = false;
+            scheduled[next] = false;
+            runs++;
+            tasks[next].run(nowNanos);
+        }
+        arm();
+    }
+
+    // Handler callbacks that woke the thread; frames of the vsync loop are not counted
+    public long getWakeups() {
+        return wakeups;
+    }
+
+    public long getRuns() {
+        return runs;
+    }
+
+    private int indexOf(Task task) {
+        for (int i = 0; i < taskCount; i++) {
+            if (tasks[i] == task) {
+                return i;
+            }
+        }
+        if (taskCount == MAX_TASKS) {
+            throw new IllegalStateException("Too many tasks");
+        }
+        tasks[taskCount] = task;
+        return taskCount++;
+    }
+
+    // Keep one Handler callback posted for the earliest deadline, or none if nothing is scheduled
+    // or the vsync loop will get to it first
+    private void arm() {
+        boolean any = false;
+        long earliest = 0;
+        for (int i = 0; i < taskCount; i++) {
+            if (scheduled[i] && (!any || deadlines[i] - earliest < 0)) {
+                earliest = deadlines[i];
+                any = true;
+            }
+        }
+        if (!any || pumped) {
+            if (armed) {
+                handler.removeCallbacks(wake);
+                armed = false;
+            }
+            return;
+        }
+        if (armed && armedDeadline == earliest) {
+            return;
+        }
+        handler.removeCallbacks(wake);
+        // Round down; the slack lets the tasks run up to that much early
+        long delayMillis = Math.max(0, (earliest - System.nanoTime()) / 1_000_000);
+        handler.postDelayed(wake, delayMillis);
+        armed = true;
+        armedDeadline = earliest;
+    }
+}
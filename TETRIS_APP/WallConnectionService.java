@@ -0,0 +1,194 @@
+package com.example.myapplication;
+
+import android.app.Service;
+import android.content.Intent;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+// The one connection to the LED wall, shared by every screen. Activities bind while they are
+// started, and the next activity binds before the last one unbinds, so the socket comes up with the
+// opening screen and is already open when a game starts. The client pings every
+// PING_INTERVAL_SECONDS and fails the socket when no pong comes back; a failed or closed socket is
+// redialled after an exponential backoff with random jitter, so phones that lose the wall together
+// do not all reconnect at the same moment.
+public class WallConnectionService extends Service {
+    public static final String WALL_URL = "ws://192.168.4.1:81";
+    private static final String TAG = "WallConnection";
+    private static final long PING_INTERVAL_SECONDS = 2;
+    private static final long MIN_BACKOFF_MS = 250;
+    private static final long MAX_BACKOFF_MS = 10_000;
+
+    // Called on an OkHttp thread, or on the caller's thread when added to an open connection
+    public interface Listener {
+        void onOpen(); // Anything sent before may not have arrived
+        void onMessage(String text);
+    }
+
+    public class LocalBinder extends Binder {
+        public WallConnectionService getService() {
+            return WallConnectionService.this;
+        }
+    }
+
+    // Shared by the whole process so the service never builds a second one
+    private static OkHttpClient client;
+
+    private final IBinder binder = new LocalBinder();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+    private WebSocket current; // Being opened or open; guarded by this
+    private volatile WebSocket openSocket; // current, once it has opened
+    private int failures; // In a row, since the last open
+    private boolean stopped;
+
+    private final Runnable reconnect = new Runnable() {
+        @Override
+        public void run() {
+            connect();
+        }
+    };
+
+    private static synchronized OkHttpClient client() {
+        if (client == null) {
+            client = new OkHttpClient.Builder()
+                    .pingInterval(PING_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                    .build();
+        }
+        return client;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        connect();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        synchronized (this) {
+            stopped = true;
+            handler.removeCallbacks(reconnect);
+            if (current != null) {
+                current.close(1000, "App closed");
+            }
+            current = null;
+            openSocket = null;
+        }
+    }
+
+    // If the connection is already open, listener hears onOpen right away
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        if (openSocket != null) {
+            listener.onOpen();
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean isOpen() {
+        return openSocket != null;
+    }
+
+    // Returns false if there is no open connection or its send queue is full
+    public boolean send(ByteString bytes) {
+        WebSocket socket = openSocket;
+        return socket != null && socket.send(bytes);
+    }
+
+    public boolean send(String text) {
+        WebSocket socket = openSocket;
+        return socket != null && socket.send(text);
+    }
+
+    // Bytes waiting to go out on the open connection
+    public long queueSize() {
+        WebSocket socket = openSocket;
+        return socket != null ? socket.queueSize() : 0;
+    }
+
+    private synchronized void connect() {
+        if (stopped || current != null) {
+            return;
+        }
+        Request request = new Request.Builder().url(WALL_URL).build();
+        current = client().newWebSocket(request, new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                if (opened(webSocket)) {
+                    Log.d(TAG, "WebSocket connection opened");
+                    for (Listener listener : listeners) {
+                        listener.onOpen();
+                    }
+                }
+            }
+
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                for (Listener listener : listeners) {
+                    listener.onMessage(text);
+                }
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(1000, null); // Finish the close the wall started
+                dropped(webSocket, null);
+            }
+
+            @Override
+            public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+                dropped(webSocket, t);
+            }
+        });
+    }
+
+    private synchronized boolean opened(WebSocket webSocket) {
+        if (webSocket != current) {
+            return false;
+        }
+        failures = 0;
+        openSocket = webSocket;
+        return true;
+    }
+
+    private synchronized void dropped(WebSocket webSocket, Throwable t) {
+        if (webSocket != current) {
+            return; // Already replaced, or closed by onDestroy
+        }
+        current = null;
+        openSocket = null;
+        if (stopped) {
+            return;
+        }
+        // Wait between half and all of a doubling step, capped at MAX_BACKOFF_MS
+        long step = Math.min(MAX_BACKOFF_MS, MIN_BACKOFF_MS << Math.min(failures, 6));
+        long delay = step / 2 + (long) (random.nextDouble() * (step / 2));
+        failures++;
+        Log.e(TAG, "WebSocket connection lost, retrying in " + delay + " ms", t);
+        handler.postDelayed(reconnect, delay);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.myapplication;
+
+// Binary frame layout shared by the phone and the LED wall (see updateLEDsBinary in Wall_Tetris_Matrix.ino).
+//
+// Header, 7 bytes:
+//   [0] MAGIC  [1] VERSION  [2] frame type  [3..4] sequence number  [5..6] record count, big-endian
+// The sequence number goes up by one for every frame sent and wraps at 65536. A receiver that sees
+// a gap answers with the text message RESYNC and ignores deltas until the next keyframe.
+// Cell record, 2 bytes:
+//   [0] row  [1] col << 4 | palette index, index 0 (Palette.EMPTY) turns the cell off
+// Span record, 3 bytes, sets cols first..last of one row to one color (first 0, last 9 fills the row):
+//   [0] row  [1] first col << 4 | last col  [2] palette index
+// The encoder writes each frame with whichever record kind makes it smaller; line clears and
+// wipes, which change whole rows, shrink to one span per row.
+// Palette record, 3 bytes, entry i of the color table for record i:
+//   [0] red  [1] green  [2] blue
+// A palette frame is sent once per connection, before the first keyframe, and whenever the colors
+// change (a theme, dimming). It stands outside the sequence, and the wall repaints the board with it.
+//
+// LED range record, 3 + 3 * count bytes, sets count LEDs from strip index first on:
+//   [0..1] first LED, big-endian  [2] count, 1..255  then count x [red][green][blue]
+// LED frames carry screens the phone composes pixel by pixel (see LedFrameComposer), such as the
+// game over screen, with only the ranges that changed. Like palette frames they stand outside the
+// sequence; they paint over the board, so the next board frame has to be a keyframe.
+//
+// A keyframe needs no earlier frame, so it is sent whenever it is no bigger than the delta,
+// periodically, and after a resync request or a reconnect.
+//
+// TURN_OFF stays a text frame.
+public final class WireFormat {
+    public static final int MAGIC = 0x54; // 'T'
+    public static final int VERSION = 5;
+
+    public static final int TYPE_CELLS = 1; // Apply each cell record on top of what the wall shows
+    public static final int TYPE_KEYFRAME = 2; // Clear the board, then apply the records of every lit cell
+    public static final int TYPE_SPANS = 3; // TYPE_CELLS with span records
+    public static final int TYPE_SPAN_KEYFRAME = 4; // TYPE_KEYFRAME with span records
+    public static final int TYPE_PALETTE = 5; // Replace the color table
+    public static final int TYPE_LEDS = 6; // Set ranges of LEDs to raw colors
+
+    public static final int HEADER_SIZE = 7;
+    public static final int CELL_RECORD_SIZE = 2;
+    public static final int SPAN_RECORD_SIZE = 3;
+    public static final int PALETTE_RECORD_SIZE = 3;
+    public static final int LED_RANGE_HEADER_SIZE = 3;
+    public static final int LED_SIZE = 3;
+    public static final int MAX_LED_RANGE = 255;
+    public static final int MAX_PALETTE_SIZE = 16; // Colors travel as 4-bit indices
+    public static final int SEQUENCE_MASK = 0xFFFF;
+
+    public static final String RESYNC = "RESYNC"; // Text message from the wall asking for a keyframe
+
+    private WireFormat() {
+    }
+
+    public static boolean isKeyframe(int type) {
+        return type == TYPE_KEYFRAME || type == TYPE_SPAN_KEYFRAME;
+    }
+
+    public static boolean hasSpans(int type) {
+        return type == TYPE_SPANS || type == TYPE_SPAN_KEYFRAME;
+    }
+
+    // Fixed record size of a frame type; TYPE_LEDS records vary and are walked instead
+    public static int recordSize(int type) {
+        if (type == TYPE_PALETTE) {
+            return PALETTE_RECORD_SIZE;
+        }
+        return hasSpans(type) ? SPAN_RECORD_SIZE : CELL_RECORD_SIZE;
+    }
+}
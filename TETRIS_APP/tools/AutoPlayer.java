@@ -0,0 +1,127 @@
+package com.example.myapplication.tools;
+
+import com.example.myapplication.Block;
+import com.example.myapplication.BoardGrid;
+import com.example.myapplication.FastRandom;
+import com.example.myapplication.GameEngine;
+import com.example.myapplication.PieceCatalog;
+
+// Seeded bot that plays a GameEngine well enough to stack and clear lines, so the tools can
+// generate realistic games without a person at the buttons. For each new piece it scores every
+// rotation and column by height, holes, bumpiness and cleared lines, then steers the piece there.
+public class AutoPlayer {
+    private static final int MAX_INPUTS_PER_PIECE = 16; // Give up steering and drop after this many
+
+    private final GameEngine engine;
+    private final FastRandom random;
+    private final boolean hardDrop; // Drop once in place, or let gravity bring the piece down
+    private final int[] rows = new int[BoardGrid.NUM_ROWS]; // Scratch board for scoring placements
+
+    private long plannedVersion = -1; // Stack version the plan was made for, a new piece bumps it
+    private int targetRotation;
+    private int targetCol;
+    private int inputs;
+
+    public AutoPlayer(GameEngine engine, long seed, boolean hardDrop) {
+        this.engine = engine;
+        this.random = new FastRandom(seed);
+        this.hardDrop = hardDrop;
+    }
+
+    // Input for the next engine step
+    public GameEngine.Input nextInput() {
+        if (engine.isGameOver()) {
+            return GameEngine.Input.NONE;
+        }
+        Block block = engine.getCurrentBlock();
+        if (engine.getStackVersion() != plannedVersion) {
+            plannedVersion = engine.getStackVersion();
+            plan(block);
+            inputs = 0;
+        }
+        if (++inputs > MAX_INPUTS_PER_PIECE) {
+            return GameEngine.Input.DROP;
+        }
+        if (block.getRotation() != targetRotation) {
+            return GameEngine.Input.ROTATE;
+        }
+        if (block.getCol() < targetCol) {
+            return GameEngine.Input.RIGHT;
+        }
+        if (block.getCol() > targetCol) {
+            return GameEngine.Input.LEFT;
+        }
+        return hardDrop ? GameEngine.Input.DROP : GameEngine.Input.NONE;
+    }
+
+    private void plan(Block block) {
+        BoardGrid grid = engine.getGrid();
+        double best = Double.NEGATIVE_INFINITY;
+        targetRotation = block.getRotation();
+        targetCol = block.getCol();
+        for (int rotation = 0; rotation < PieceCatalog.NUM_ROTATIONS; rotation++) {
+            int mask = PieceCatalog.mask(block.getType(), rotation);
+            for (int col = -3; col < BoardGrid.NUM_COLS; col++) {
+                if (!grid.fits(mask, block.getRow(), col)) {
+                    continue;
+                }
+                int row = block.getRow() + grid.dropDistance(mask, block.getRow(), col);
+                // A little noise so games from different seeds do not all look alike
+                double score = evaluate(grid, mask, row, col) + random.nextInt(100) / 1000.0;
+                if (score > best) {
+                    best = score;
+                    targetRotation = rotation;
+                    targetCol = col;
+                }
+            }
+        }
+    }
+
+    // Classic weighted sum over the board left after placing mask at (row, col)
+    private double evaluate(BoardGrid grid, int mask, int row, int col) {
+        for (int r = 0; r < BoardGrid.NUM_ROWS; r++) {
+            rows[r] = grid.getRowMask(r);
+        }
+        for (int r = 0; r < 4; r++) {
+            int slice = (mask >> (r * 4)) & 0xF;
+            if (slice != 0) {
+                rows[row + r] |= col >= 0 ? slice << col : slice >> -col;
+            }
+        }
+        int lines = 0;
+        int dst = BoardGrid.NUM_ROWS - 1;
+        for (int src = BoardGrid.NUM_ROWS - 1; src >= 0; src--) {
+            if (rows[src] == BoardGrid.FULL_ROW) {
+                lines++;
+            } else {
+                rows[dst--] = rows[src];
+            }
+        }
+        while (dst >= 0) {
+            rows[dst--] = 0;
+        }
+
+        int totalHeight = 0;
+        int holes = 0;
+        int bumpiness = 0;
+        int previousHeight = -1;
+        for (int c = 0; c < BoardGrid.NUM_COLS; c++) {
+            int height = 0;
+            for (int r = 0; r < BoardGrid.NUM_ROWS; r++) {
+                if ((rows[r] & (1 << c)) != 0) {
+                    if (height == 0) {
+                        height = BoardGrid.NUM_ROWS - r;
+                    }
+                } else if (height != 0) {
+                    holes++;
+                }
+            }
+            totalHeight += height;
+            if (previousHeight >= 0) {
+                bumpiness += Math.abs(height - previousHeight);
+            }
+            previousHeight = height;
+        }
+        return 0.76 * lines - 0.51 * totalHeight - 0.36 * holes - 0.18 * bumpiness;
+    }
+}
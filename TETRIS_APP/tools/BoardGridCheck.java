@@ -0,0 +1,86 @@
+package com.example.myapplication.tools;
+
+import com.example.myapplication.BoardGrid;
+import com.example.myapplication.GameEngine;
+
+// Checks the engine's packed BoardGrid against the block list it is built from, over seeded games
+// played by AutoPlayer. After every engine step each cell, including one cell past every edge, must
+// agree with BoardGrid.isOccupiedByScan, and a grid rebuilt from the list must have the same row
+// masks, colors and surface. Prints the first mismatch of each game and exits with status 1 if any
+// game had one.
+//
+//   java com.example.myapplication.tools.BoardGridCheck [games] [seed]
+public class BoardGridCheck {
+    private static final int MAX_STEPS = 20000; // Per game, in case the bot never tops out
+
+    private final BoardGrid rebuilt = new BoardGrid();
+    private long steps;
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        BoardGridCheck check = new BoardGridCheck();
+        int failed = 0;
+        for (int i = 0; i < games; i++) {
+            String mismatch = check.playGame(seed + i);
+            if (mismatch != null) {
+                System.out.println("seed " + (seed + i) + ": " + mismatch);
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            System.out.println(failed + " of " + games + " games did not match the block list");
+            System.exit(1);
+        }
+        System.out.println("All " + games + " games matched the block list over " + check.steps + " steps");
+    }
+
+    // Returns a description of the first mismatch, or null if the whole game matched
+    private String playGame(long seed) {
+        GameEngine engine = new GameEngine(seed);
+        AutoPlayer player = new AutoPlayer(engine, seed, false);
+        for (int step = 0; step < MAX_STEPS && !engine.isGameOver(); step++) {
+            engine.step(player.nextInput());
+            steps++;
+            String mismatch = compare(engine);
+            if (mismatch != null) {
+                return "step " + step + ", " + mismatch;
+            }
+        }
+        return null;
+    }
+
+    private String compare(GameEngine engine) {
+        BoardGrid grid = engine.getGrid();
+        for (int row = -1; row <= BoardGrid.NUM_ROWS; row++) {
+            for (int col = -1; col <= BoardGrid.NUM_COLS; col++) {
+                boolean scanned = BoardGrid.isOccupiedByScan(engine.getBlocksOnBoard(), row, col);
+                if (grid.isOccupied(row, col) != scanned) {
+                    return "cell (" + row + ", " + col + ") occupied " + grid.isOccupied(row, col)
+                            + ", scan says " + scanned;
+                }
+            }
+        }
+
+        rebuilt.rebuild(engine.getBlocksOnBoard());
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            if (rebuilt.getRowMask(row) != grid.getRowMask(row)) {
+                return "row " + row + " mask " + Integer.toBinaryString(grid.getRowMask(row))
+                        + ", rebuilt " + Integer.toBinaryString(rebuilt.getRowMask(row));
+            }
+            for (int col = 0; col < BoardGrid.NUM_COLS; col++) {
+                if (rebuilt.colorAt(row, col) != grid.colorAt(row, col)) {
+                    return "cell (" + row + ", " + col + ") color " + grid.colorAt(row, col)
+                            + ", rebuilt " + rebuilt.colorAt(row, col);
+                }
+            }
+        }
+        for (int col = 0; col < BoardGrid.NUM_COLS; col++) {
+            if (rebuilt.getSurface(col) != grid.getSurface(col)) {
+                return "column " + col + " surface " + grid.getSurface(col) + ", rebuilt " + rebuilt.getSurface(col);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.myapplication.tools;
+
+import com.example.myapplication.BoardGrid;
+import com.example.myapplication.BoardSnapshot;
+import com.example.myapplication.CellChangeBatch;
+import com.example.myapplication.FrameEncoder;
+import com.example.myapplication.GameBoardState;
+import com.example.myapplication.GameEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+// Compares bytes per frame of the frame encodings, either over seeded games played by AutoPlayer,
+// where every engine step is one frame, or over the boards of SessionRecordings, which are the
+// frames the app actually sent. Each board is diffed against the one before, the way FrameSender
+// does it, and the same change batch is sized as cell records, as span records and as the smaller
+// of the two (what FrameSender sends). The game-over wipe to a dark board is measured on its own.
+// Recordings carry no score, so there a frame counts as a line clear when fewer cells are lit.
+//
+//   java com.example.myapplication.tools.EncoderBenchmark [games] [seed]
+//   java com.example.myapplication.tools.EncoderBenchmark --recording session.tsr...
+public class EncoderBenchmark {
+    private static final int MAX_STEPS = 20000; // Per game, in case the bot never tops out
+
+    private long frames;
+    private long cellBytes;
+    private long spanBytes;
+    private long adaptiveBytes;
+    private long keyframeBytes;
+    private long clearFrames;
+    private long clearCellBytes;
+    private long clearAdaptiveBytes;
+    private long wipeCellBytes;
+    private long wipeAdaptiveBytes;
+    private long encodeNanos;
+
+    private BoardSnapshot previous = BoardSnapshot.EMPTY;
+    private final CellChangeBatch changes = new CellChangeBatch();
+    private final FrameEncoder encoder = new FrameEncoder();
+
+    public static void main(String[] args) throws IOException {
+        EncoderBenchmark benchmark = new EncoderBenchmark();
+        if (args.length > 0 && args[0].equals("--recording")) {
+            int games = 0;
+            for (int i = 1; i < args.length; i++) {
+                games += benchmark.replay(SessionRecording.read(new File(args[i])));
+            }
+            benchmark.report(games);
+            return;
+        }
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        for (int i = 0; i < games; i++) {
+            benchmark.playGame(seed + i);
+        }
+        benchmark.report(games);
+    }
+
+    private void playGame(long seed) {
+        GameEngine engine = new GameEngine(seed);
+        AutoPlayer player = new AutoPlayer(engine, seed, false);
+        previous = BoardSnapshot.EMPTY;
+        for (int step = 0; step < MAX_STEPS && !engine.isGameOver(); step++) {
+            int score = engine.getScore();
+            engine.step(player.nextInput());
+            if (measure(engine.getSnapshot())) {
+                if (engine.getScore() != score) {
+                    clearFrames++;
+                    clearCellBytes += cellLength();
+                    clearAdaptiveBytes += FrameEncoder.deltaLength(changes);
+                }
+            }
+        }
+
+        wipe();
+    }
+
+    // Measure every board a recording sent. Returns the number of games that ended in it.
+    private int replay(SessionRecording recording) {
+        GameBoardState board = new GameBoardState();
+        int games = 0;
+        previous = BoardSnapshot.EMPTY;
+        for (SessionRecording.Event event : recording.getEvents()) {
+            if (event.kind == SessionRecording.BOARD) {
+                event.toBoard(board);
+                int lit = countLit(previous);
+                BoardSnapshot snapshot = BoardSnapshot.of(board, previous, previous.getVersion() + 1, 0, false);
+                if (measure(snapshot) && countLit(snapshot) < lit) {
+                    clearFrames++;
+                    clearCellBytes += cellLength();
+                    clearAdaptiveBytes += FrameEncoder.deltaLength(changes);
+                }
+            } else if (event.kind == SessionRecording.GAME_OVER) {
+                wipe();
+                games++;
+                previous = BoardSnapshot.EMPTY; // The next game is a new MainActivity
+            }
+        }
+        return games;
+    }
+
+    // The wall goes dark at game over
+    private void wipe() {
+        if (BoardSnapshot.EMPTY.diff(previous, changes) > 0) {
+            wipeCellBytes += cellLength();
+            wipeAdaptiveBytes += FrameEncoder.deltaLength(changes);
+        }
+    }
+
+    private static int countLit(BoardSnapshot board) {
+        int lit = 0;
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            for (int col = 0; col < BoardGrid.NUM_COLS; col++) {
+                if (board.isOccupied(row, col)) {
+                    lit++;
+                }
+            }
+        }
+        return lit;
+    }
+
+    // Size one frame against the previous board. Returns false if nothing changed.
+    private boolean measure(BoardSnapshot board) {
+        if (board.diff(previous, changes) == 0) {
+            return false;
+        }
+        frames++;
+        cellBytes += cellLength();
+        spanBytes += encoder.encodeSpans(changes);
+        keyframeBytes += FrameEncoder.keyframeLength(board);
+        long start = System.nanoTime();
+        adaptiveBytes += encoder.encodeDelta(changes);
+        encodeNanos += System.nanoTime() - start;
+        previous = board;
+        return true;
+    }
+
+    private int cellLength() {
+        return encoder.encodeCells(changes);
+    }
+
+    private void report(int games) {
+        System.out.printf(Locale.ROOT, "%d games, %d frames%n", games, frames);
+        System.out.printf(Locale.ROOT, "  cell records   %8.2f bytes/frame%n", perFrame(cellBytes));
+        System.out.printf(Locale.ROOT, "  span records   %8.2f bytes/frame%n", perFrame(spanBytes));
+        System.out.printf(Locale.ROOT, "  smaller of two %8.2f bytes/frame, %.0f ns to encode%n",
+                perFrame(adaptiveBytes), frames == 0 ? 0.0 : (double) encodeNanos / frames);
+        System.out.printf(Locale.ROOT, "  keyframe       %8.2f bytes/frame%n", perFrame(keyframeBytes));
+        System.out.printf(Locale.ROOT, "%d line-clear frames: cells %.2f, smaller of two %.2f bytes/frame%n",
+                clearFrames, average(clearCellBytes, clearFrames), average(clearAdaptiveBytes, clearFrames));
+        System.out.printf(Locale.ROOT, "Game-over wipe: cells %.2f, smaller of two %.2f bytes/game%n",
+                average(wipeCellBytes, games), average(wipeAdaptiveBytes, games));
+    }
+
+    private double perFrame(long bytes) {
+        return average(bytes, frames);
+    }
+
+    private static double average(long total, long count) {
+        return count == 0 ? 0.0 : (double) total / count;
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.myapplication.tools;
+
+import com.example.myapplication.BoardGrid;
+import com.example.myapplication.BoardSnapshot;
+import com.example.myapplication.CellChangeBatch;
+import com.example.myapplication.FastRandom;
+import com.example.myapplication.FrameDecoder;
+import com.example.myapplication.FrameEncoder;
+import com.example.myapplication.GameBoardState;
+import com.example.myapplication.LedLayout;
+import com.example.myapplication.Palette;
+import com.example.myapplication.WireFormat;
+
+import java.util.Arrays;
+
+// Round-trips every frame type through FrameEncoder and FrameDecoder over seeded random boards,
+// palettes and LED ranges: cell, span and delta frames must turn the old board into the new one,
+// keyframes must rebuild the board from whatever was shown, and palette and LED frames must come
+// back as they went in. Every frame must also be rejected once its length is off by one, its
+// version or magic is wrong or its type is unknown. Prints each failure and exits with status 1 if
+// there is any.
+//
+//   java com.example.myapplication.tools.FrameCodecCheck [rounds] [seed]
+public class FrameCodecCheck {
+    private static final int NUM_CELLS = BoardGrid.NUM_ROWS * BoardGrid.NUM_COLS;
+    private static final int MAX_REPORTED = 20;
+
+    private final FastRandom random;
+    private final FrameEncoder encoder = new FrameEncoder();
+    private final CellChangeBatch changes = new CellChangeBatch();
+    private final int[] cells = new int[NUM_CELLS]; // The next board, palette index per cell
+    private final GameBoardState scratch = new GameBoardState();
+    private final int[] shown = new int[NUM_CELLS]; // The decoded board, palette index per cell
+    private final int[] typeCounts = new int[WireFormat.TYPE_LEDS + 1];
+    private int failures;
+
+    private final FrameDecoder.CellSink sink = new FrameDecoder.CellSink() {
+        @Override
+        public void onClear() {
+            Arrays.fill(shown, Palette.EMPTY);
+        }
+
+        @Override
+        public void onCell(int row, int col, int color) {
+            shown[row * BoardGrid.NUM_COLS + col] = color;
+        }
+    };
+
+    public FrameCodecCheck(long seed) {
+        random = new FastRandom(seed);
+    }
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        FrameCodecCheck check = new FrameCodecCheck(seed);
+        for (int i = 0; i < rounds; i++) {
+            check.round();
+        }
+        check.checkRejectsUnknownTypes();
+        System.out.printf("%d rounds: %d cells, %d keyframe, %d spans, %d span keyframe, %d palette, %d LED frames%n",
+                rounds, check.typeCounts[WireFormat.TYPE_CELLS], check.typeCounts[WireFormat.TYPE_KEYFRAME],
+                check.typeCounts[WireFormat.TYPE_SPANS], check.typeCounts[WireFormat.TYPE_SPAN_KEYFRAME],
+                check.typeCounts[WireFormat.TYPE_PALETTE], check.typeCounts[WireFormat.TYPE_LEDS]);
+        for (int type = WireFormat.TYPE_CELLS; type <= WireFormat.TYPE_LEDS; type++) {
+            if (check.typeCounts[type] == 0) {
+                check.fail("no frame of type " + type + " was checked");
+            }
+        }
+        if (check.failures > 0) {
+            System.out.println(check.failures + " failures");
+            System.exit(1);
+        }
+        System.out.println("All frames round-tripped");
+    }
+
+    private void round() {
+        BoardSnapshot before = randomBoard(BoardSnapshot.EMPTY);
+        BoardSnapshot after = random.nextInt(2) == 0 ? mutate(before) : randomBoard(before);
+        after.diff(before, changes);
+
+        encoder.encodeCells(changes);
+        checkDelta(before, after);
+        encoder.encodeSpans(changes);
+        checkDelta(before, after);
+        encoder.encodeDelta(changes);
+        checkDelta(before, after);
+
+        encoder.encodeKeyframe(after);
+        // A keyframe works whatever the wall showed before
+        for (int i = 0; i < NUM_CELLS; i++) {
+            shown[i] = 1 + random.nextInt(Palette.pieceColorCount());
+        }
+        decode();
+        expectBoard(after, "keyframe");
+
+        checkPalette();
+        checkLeds();
+    }
+
+    // Decode the encoder's frame on top of before, expecting after
+    private void checkDelta(BoardSnapshot before, BoardSnapshot after) {
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            for (int col = 0; col < BoardGrid.NUM_COLS; col++) {
+                shown[row * BoardGrid.NUM_COLS + col] = before.isOccupied(row, col) ? before.colorAt(row, col) : Palette.EMPTY;
+            }
+        }
+        decode();
+        expectBoard(after, "delta");
+    }
+
+    private void decode() {
+        int type = encoder.getType();
+        typeCounts[type]++;
+        try {
+            int count = FrameDecoder.decode(encoder.getBuffer(), 0, encoder.getLength(), sink);
+            if (count != encoder.getCount()) {
+                fail("type " + type + " decoded " + count + " records of " + encoder.getCount());
+            }
+        } catch (IllegalArgumentException e) {
+            fail("type " + type + " rejected: " + e.getMessage());
+        }
+        checkRejected(encoder.getBuffer(), encoder.getLength());
+    }
+
+    private void expectBoard(BoardSnapshot expected, String what) {
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            for (int col = 0; col < BoardGrid.NUM_COLS; col++) {
+                int color = expected.isOccupied(row, col) ? expected.colorAt(row, col) : Palette.EMPTY;
+                if (shown[row * BoardGrid.NUM_COLS + col] != color) {
+                    fail(what + " type " + encoder.getType() + ": cell (" + row + ", " + col + ") is "
+                            + shown[row * BoardGrid.NUM_COLS + col] + ", expected " + color);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void checkPalette() {
+        int[] colors = new int[1 + random.nextInt(WireFormat.MAX_PALETTE_SIZE)];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = (int) random.nextLong(); // Alpha is dropped on the wire
+        }
+        int length = encoder.encodePalette(colors);
+        typeCounts[WireFormat.TYPE_PALETTE]++;
+        int[] decoded = new int[WireFormat.MAX_PALETTE_SIZE];
+        try {
+            int count = FrameDecoder.decodePalette(encoder.getBuffer(), 0, length, decoded);
+            if (count != colors.length) {
+                fail("palette decoded " + count + " colors of " + colors.length);
+            }
+            for (int i = 0; i < colors.length; i++) {
+                if (decoded[i] != (0xFF000000 | colors[i])) {
+                    fail("palette color " + i + " is " + Integer.toHexString(decoded[i]) + ", expected "
+                            + Integer.toHexString(0xFF000000 | colors[i]));
+                    break;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            fail("palette rejected: " + e.getMessage());
+        }
+        checkRejected(encoder.getBuffer(), length);
+    }
+
+    // A few ranges anywhere on the strip, in order and apart, as LedFrameComposer writes them
+    private void checkLeds() {
+        int[] leds = new int[LedLayout.NUM_LEDS];
+        for (int i = 0; i < leds.length; i++) {
+            leds[i] = random.nextInt(0x1000000);
+        }
+        boolean[] covered = new boolean[LedLayout.NUM_LEDS];
+        encoder.begin(WireFormat.TYPE_LEDS);
+        int led = random.nextInt(LedLayout.NUM_LEDS);
+        while (led < LedLayout.NUM_LEDS) {
+            int count = Math.min(1 + random.nextInt(WireFormat.MAX_LED_RANGE), LedLayout.NUM_LEDS - led);
+            encoder.putLedRange(leds, led, count);
+            Arrays.fill(covered, led, led + count, true);
+            led += count + 1 + random.nextInt(200);
+        }
+        int length = encoder.finish();
+        typeCounts[WireFormat.TYPE_LEDS]++;
+
+        int[] decoded = new int[LedLayout.NUM_LEDS];
+        Arrays.fill(decoded, -1); // Left alone outside the ranges
+        try {
+            int ranges = FrameDecoder.decodeLeds(encoder.getBuffer(), 0, length, decoded);
+            if (ranges != encoder.getCount()) {
+                fail("LED frame decoded " + ranges + " ranges of " + encoder.getCount());
+            }
+            for (int i = 0; i < LedLayout.NUM_LEDS; i++) {
+                int expected = covered[i] ? leds[i] : -1;
+                if (decoded[i] != expected) {
+                    fail("LED " + i + " is " + decoded[i] + ", expected " + expected);
+                    break;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            fail("LED frame rejected: " + e.getMessage());
+        }
+        checkRejected(encoder.getBuffer(), length);
+    }
+
+    // A good frame of length bytes must be refused once it is cut short, has a byte too many, or
+    // carries another version or magic
+    private void checkRejected(byte[] frame, int length) {
+        byte[] copy = Arrays.copyOf(frame, length + 1);
+        expectRejected(copy, length - 1, "one byte short");
+        expectRejected(copy, length + 1, "one byte long");
+        copy[1] = (byte) (WireFormat.VERSION + 1);
+        expectRejected(copy, length, "version " + (WireFormat.VERSION + 1));
+        copy[1] = (byte) (WireFormat.VERSION - 1);
+        expectRejected(copy, length, "version " + (WireFormat.VERSION - 1));
+        copy[1] = (byte) WireFormat.VERSION;
+        copy[0] = (byte) (WireFormat.MAGIC + 1);
+        expectRejected(copy, length, "bad magic");
+    }
+
+    private void checkRejectsUnknownTypes() {
+        byte[] frame = new byte[WireFormat.HEADER_SIZE];
+        encoder.begin(WireFormat.TYPE_CELLS);
+        System.arraycopy(encoder.getBuffer(), 0, frame, 0, encoder.finish());
+        frame[2] = (byte) (WireFormat.TYPE_CELLS - 1);
+        expectRejected(frame, frame.length, "type " + frame[2]);
+        frame[2] = (byte) (WireFormat.TYPE_LEDS + 1);
+        expectRejected(frame, frame.length, "type " + frame[2]);
+    }
+
+    private void expectRejected(byte[] frame, int length, String what) {
+        try {
+            FrameDecoder.checkHeader(frame, 0, length);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        fail("type " + FrameDecoder.type(frame, 0) + " accepted with " + what);
+    }
+
+    // Rows are empty, scattered cells or runs of one color, so both cell and span encodings win
+    private BoardSnapshot randomBoard(BoardSnapshot previous) {
+        Arrays.fill(cells, Palette.EMPTY);
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            int kind = random.nextInt(3);
+            int col = 0;
+            while (kind != 0 && col < BoardGrid.NUM_COLS) {
+                int run = kind == 1 ? 1 : 1 + random.nextInt(BoardGrid.NUM_COLS);
+                int color = random.nextInt(2) == 0 ? Palette.EMPTY : 1 + random.nextInt(Palette.pieceColorCount());
+                for (int end = Math.min(BoardGrid.NUM_COLS, col + run); col < end; col++) {
+                    cells[row * BoardGrid.NUM_COLS + col] = color;
+                }
+            }
+        }
+        return snapshot(previous);
+    }
+
+    // previous with up to eight cells lit, recolored or cleared, as in play
+    private BoardSnapshot mutate(BoardSnapshot previous) {
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            for (int col = 0; col < BoardGrid.NUM_COLS; col++) {
+                cells[row * BoardGrid.NUM_COLS + col] = previous.isOccupied(row, col) ? previous.colorAt(row, col) : Palette.EMPTY;
+            }
+        }
+        int edits = 1 + random.nextInt(8);
+        for (int i = 0; i < edits; i++) {
+            cells[random.nextInt(NUM_CELLS)] = random.nextInt(Palette.size());
+        }
+        return snapshot(previous);
+    }
+
+    private BoardSnapshot snapshot(BoardSnapshot previous) {
+        scratch.clear();
+        for (int i = 0; i < NUM_CELLS; i++) {
+            if (cells[i] != Palette.EMPTY) {
+                scratch.set(i / BoardGrid.NUM_COLS, i % BoardGrid.NUM_COLS, cells[i]);
+            }
+        }
+        return BoardSnapshot.of(scratch, previous, previous.getVersion() + 1, 0, false);
+    }
+
+    private void fail(String message) {
+        if (failures < MAX_REPORTED) {
+            System.out.println(message);
+        }
+        failures++;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.myapplication.tools;
+
+import com.example.myapplication.BoardGrid;
+import com.example.myapplication.LedLayout;
+
+// Checks LedLayout's cell table against SimulatedWall.calculateLEDIndex, the port of the firmware's
+// mapping, for every corner of every cell, and that the cells cover each LED of the strip exactly
+// once. Prints each mismatch and exits with status 1 if there is any, so a change to either copy
+// of the mapping cannot slip through unnoticed.
+//
+//   java com.example.myapplication.tools.LedLayoutCheck
+public class LedLayoutCheck {
+    public static void main(String[] args) {
+        int[] expected = new int[LedLayout.LEDS_PER_CELL];
+        int[] hits = new int[LedLayout.NUM_LEDS];
+        int mismatches = 0;
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            for (int col = 0; col < BoardGrid.NUM_COLS; col++) {
+                SimulatedWall.calculateLEDIndex(row, col, expected);
+                for (int corner = 0; corner < LedLayout.LEDS_PER_CELL; corner++) {
+                    int led = LedLayout.cellLed(row, col, corner);
+                    if (led != expected[corner]) {
+                        System.out.printf("cell (%d, %d) corner %d: LedLayout %d, calculateLEDIndex %d%n",
+                                row, col, corner, led, expected[corner]);
+                        mismatches++;
+                    }
+                    if (led >= 0 && led < LedLayout.NUM_LEDS) {
+                        hits[led]++;
+                    } else {
+                        System.out.printf("cell (%d, %d) corner %d: LED %d is off the strip%n", row, col, corner, led);
+                        mismatches++;
+                    }
+                }
+            }
+        }
+        for (int led = 0; led < LedLayout.NUM_LEDS; led++) {
+            if (hits[led] != 1) {
+                System.out.printf("LED %d belongs to %d cells%n", led, hits[led]);
+                mismatches++;
+            }
+        }
+
+        int cells = BoardGrid.NUM_ROWS * BoardGrid.NUM_COLS;
+        if (mismatches > 0) {
+            System.out.println(mismatches + " mismatches over " + cells + " cells");
+            System.exit(1);
+        }
+        System.out.println("All " + cells + " cells match calculateLEDIndex");
+    }
+}
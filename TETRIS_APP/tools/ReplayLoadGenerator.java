@@ -0,0 +1,416 @@
+package com.example.myapplication.tools;
+
+import com.example.myapplication.BoardSnapshot;
+import com.example.myapplication.FrameEncoder;
+import com.example.myapplication.FrameSender;
+import com.example.myapplication.FrameWindow;
+import com.example.myapplication.GameBoardState;
+import com.example.myapplication.GameOverScreen;
+import com.example.myapplication.LedFrameComposer;
+import com.example.myapplication.Palette;
+import com.example.myapplication.WireFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+// Replays a SessionRecording into anything that speaks the wall protocol, from one or many
+// clients at once. Each client connects like MainActivity does (palette, then a keyframe) and
+// feeds the recorded boards through its own FrameSender, so whatever the current encoder, merging
+// and resync rules are is what gets measured. Speed 1 keeps the recorded timing, 10 plays ten times
+// faster and 0 sends as fast as the receiver takes it.
+//
+// Against WallSimulator --ack every message is timed from send to ACK, and the bytes not yet
+// acknowledged stand in for OkHttp's queue, so FrameSender holds frames back the same way.
+//
+//   java com.example.myapplication.tools.ReplayLoadGenerator session.tsr
+//       [--host localhost] [--port 8081] [--clients 1] [--speed 1] [--budget 32]
+public class ReplayLoadGenerator {
+    private static final long ACK_WAIT_NANOS = 5_000_000_000L; // For the last ACKs after the replay
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("usage: ReplayLoadGenerator session.tsr [--host h] [--port p] [--clients n] [--speed x] [--budget bytes]");
+            return;
+        }
+        String host = "localhost";
+        int port = WallSimulator.DEFAULT_PORT;
+        int clients = 1;
+        double speed = 1;
+        long budget = FrameSender.DEFAULT_BYTE_BUDGET;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[i + 1];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--speed":
+                    speed = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--budget":
+                    budget = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        SessionRecording recording = SessionRecording.read(new File(args[0]));
+        System.out.printf(Locale.ROOT, "Replaying %d events (%.1f s recorded) to ws://%s:%d, %d clients, speed %s%n",
+                recording.getEvents().size(), recording.getDurationMillis() / 1000.0, host, port, clients,
+                speed > 0 ? speed + "x" : "unthrottled");
+
+        List<Client> running = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Client client = new Client(i, recording, host, port, speed, budget);
+            client.start();
+            running.add(client);
+        }
+        long start = System.nanoTime();
+        for (Client client : running) {
+            client.join();
+        }
+        report(running, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void report(List<Client> clients, double seconds) {
+        long messages = 0;
+        long frames = 0;
+        long bytes = 0;
+        long merged = 0;
+        long resyncs = 0;
+        long acks = 0;
+        int failed = 0;
+        long[] latencies = new long[0];
+        for (Client client : clients) {
+            if (client.error != null) {
+                failed++;
+                System.out.println(client.getName() + " failed: " + client.error);
+                continue;
+            }
+            messages += client.messages;
+            frames += client.sender.getSentFrames();
+            bytes += client.bytes;
+            merged += client.sender.getMergedFrames();
+            resyncs += client.resyncs;
+            long[] clientLatencies = client.getLatencies();
+            acks += clientLatencies.length;
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + clientLatencies.length);
+            System.arraycopy(clientLatencies, 0, latencies, offset, clientLatencies.length);
+        }
+        Arrays.sort(latencies);
+        System.out.printf(Locale.ROOT, "%.2f s, %d messages, %d frames: %.1f frames/s, %.0f B/s, %d merged, %d resyncs%n",
+                seconds, messages, frames, frames / seconds, bytes / seconds, merged, resyncs);
+        if (latencies.length > 0) {
+            System.out.printf(Locale.ROOT, "end to end over %d ACKs: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    acks, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    latencies[latencies.length - 1] / 1e6);
+        } else {
+            System.out.println("No ACKs received; start WallSimulator with --ack for latency");
+        }
+        if (failed > 0) {
+            System.out.println(failed + " clients failed");
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)));
+        return sorted[index] / 1e6;
+    }
+
+    // One simulated phone. The replay runs on this thread, ACKs and RESYNCs are read on another.
+    private static class Client extends Thread {
+        private final SessionRecording recording;
+        private final String host;
+        private final int port;
+        private final double speed;
+        private final FrameSender sender;
+        private final GameBoardState board = new GameBoardState(); // Scratch for each recorded board
+        private BoardSnapshot snapshot = BoardSnapshot.EMPTY;
+        private final LedFrameComposer composer = new LedFrameComposer();
+        private final FrameEncoder ledEncoder = new FrameEncoder();
+        private WebSocketIO io;
+        private Thread reader;
+
+        // Messages waiting for their ACK, oldest first: send time and length
+        private long[] pendingTimes = new long[64];
+        private int[] pendingLengths = new int[64];
+        private int pendingHead;
+        private int pendingCount;
+        private long unackedBytes;
+        private boolean earlyAck; // The ACK for the message being written beat its track()
+        private long earlyAckNanos;
+        private volatile boolean acked; // The receiver sends ACKs, so unackedBytes means something
+        private volatile boolean resyncRequested;
+        private volatile boolean closed; // A send failed or the reader stopped, nothing more gets through
+
+        private long messages;
+        private long bytes;
+        private volatile long resyncs; // Written by the reader thread
+        private long[] latencies = new long[1024];
+        private int ackCount;
+        private volatile Exception error;
+
+        Client(int index, SessionRecording recording, String host, int port, double speed, long budget) {
+            super("Client-" + index);
+            this.recording = recording;
+            this.host = host;
+            this.port = port;
+            this.speed = speed;
+            this.sender = new FrameSender(new FrameSender.FrameSink() {
+                @Override
+                public long queuedBytes() {
+                    return acked ? unackedBytes() : 0;
+                }
+
+                @Override
+                public boolean send(byte[] data, int offset, int length) {
+                    return sendBinary(data, offset, length);
+                }
+            }, budget);
+        }
+
+        @Override
+        public void run() {
+            try {
+                io = WebSocketIO.connect(host, port, "/");
+            } catch (IOException e) {
+                error = e;
+                return;
+            }
+            reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    readReplies();
+                }
+            }, getName() + "-reader");
+            reader.setDaemon(true);
+            reader.start();
+
+            try {
+                replay();
+                waitForAcks();
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                io.close(); // Also ends the reader's blocking read
+            }
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void replay() throws IOException {
+            FrameEncoder paletteEncoder = new FrameEncoder();
+            paletteEncoder.encodePalette(Palette.colors());
+            sendBinary(paletteEncoder.getBuffer(), 0, paletteEncoder.getLength());
+            sender.requestKeyframe();
+
+            List<SessionRecording.Event> events = recording.getEvents();
+            long firstTime = events.isEmpty() ? 0 : events.get(0).timeMillis;
+            long start = System.nanoTime();
+            for (SessionRecording.Event event : events) {
+                checkOpen();
+                if (speed > 0) {
+                    waitUntil(start + (long) ((event.timeMillis - firstTime) * 1e6 / speed));
+                }
+                if (resyncRequested) {
+                    resyncRequested = false;
+                    sender.requestKeyframe();
+                }
+                if (event.kind == SessionRecording.BOARD) {
+                    event.toBoard(board);
+                    snapshot = BoardSnapshot.of(board, snapshot, snapshot.getVersion() + 1, 0, false);
+                    sender.send(snapshot);
+                } else if (event.kind == SessionRecording.GAME_OVER) {
+                    sendGameOver(event.score);
+                    sender.requestKeyframe(); // The next game is a new MainActivity
+                } else {
+                    sendText(event.text);
+                }
+            }
+            // Held back frames go out once the receiver catches up, as MainActivity retries them
+            long deadline = System.nanoTime() + ACK_WAIT_NANOS;
+            while (sender.send(snapshot) == FrameSender.Result.MERGED) {
+                checkOpen();
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IOException("Receiver did not take the held back frames in time");
+                }
+                LockSupport.parkNanos(FrameWindow.DEFAULT_WINDOW_MS * 1_000_000);
+            }
+            checkOpen();
+        }
+
+        // Throws once a send has failed or the receiver has gone, so the replay stops there
+        private void checkOpen() throws IOException {
+            if (!closed) {
+                return;
+            }
+            Exception failure = error;
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            throw new IOException("Receiver closed the connection");
+        }
+
+        // The first step of the score screen, drawn over the last board as MainActivity.onGameOver does
+        private void sendGameOver(int score) {
+            composer.drawBoard(sender.getSentState(), Palette.colors());
+            composer.markShown();
+            GameOverScreen.draw(composer, score, 0);
+            int length = composer.encodeChanges(ledEncoder);
+            if (length > 0) {
+                sendBinary(ledEncoder.getBuffer(), 0, length);
+            }
+        }
+
+        // A failed send is kept in error, as sendText's would be, and stops the replay
+        private boolean sendBinary(byte[] data, int offset, int length) {
+            if (closed) {
+                return false;
+            }
+            long sentNanos = System.nanoTime();
+            try {
+                io.sendBinary(data, offset, length);
+            } catch (IOException e) {
+                error = e;
+                closed = true;
+                return false;
+            }
+            track(length, sentNanos);
+            return true;
+        }
+
+        private void sendText(String text) throws IOException {
+            long sentNanos = System.nanoTime();
+            try {
+                io.sendText(text);
+            } catch (IOException e) {
+                closed = true;
+                throw e;
+            }
+            track(text.getBytes(StandardCharsets.UTF_8).length, sentNanos); // Bytes on the wire, not chars
+        }
+
+        // Count a message once it is written, timed from when the write started
+        private synchronized void track(int length, long sentNanos) {
+            messages++;
+            bytes += length;
+            if (earlyAck) {
+                earlyAck = false;
+                recordLatency(earlyAckNanos - sentNanos);
+                return;
+            }
+            if (pendingCount == pendingTimes.length) {
+                long[] times = new long[pendingCount * 2];
+                int[] lengths = new int[pendingCount * 2];
+                for (int i = 0; i < pendingCount; i++) {
+                    times[i] = pendingTimes[(pendingHead + i) % pendingCount];
+                    lengths[i] = pendingLengths[(pendingHead + i) % pendingCount];
+                }
+                pendingTimes = times;
+                pendingLengths = lengths;
+                pendingHead = 0;
+            }
+            int tail = (pendingHead + pendingCount) % pendingTimes.length;
+            pendingTimes[tail] = sentNanos;
+            pendingLengths[tail] = length;
+            pendingCount++;
+            unackedBytes += length;
+        }
+
+        private synchronized void onAck(long now) {
+            if (pendingCount == 0) {
+                // ACKs come in order, so this one is for the message whose write has not returned yet
+                earlyAck = true;
+                earlyAckNanos = now;
+                return;
+            }
+            recordLatency(now - pendingTimes[pendingHead]);
+            unackedBytes -= pendingLengths[pendingHead];
+            pendingHead = (pendingHead + 1) % pendingTimes.length;
+            pendingCount--;
+            notifyAll();
+        }
+
+        // Called with the lock held
+        private void recordLatency(long nanos) {
+            if (ackCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, ackCount * 2);
+            }
+            latencies[ackCount++] = nanos;
+        }
+
+        private synchronized long unackedBytes() {
+            return unackedBytes;
+        }
+
+        // Send to ACK times so far
+        synchronized long[] getLatencies() {
+            return Arrays.copyOf(latencies, ackCount);
+        }
+
+        private synchronized void readerStopped() {
+            closed = true;
+            notifyAll();
+        }
+
+        private synchronized void waitForAcks() {
+            if (!acked) {
+                return;
+            }
+            long deadline = System.nanoTime() + ACK_WAIT_NANOS;
+            long remaining;
+            while (pendingCount > 0 && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    wait(remaining / 1_000_000 + 1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private void readReplies() {
+            try {
+                int opcode;
+                while ((opcode = io.readMessage()) != WebSocketIO.OPCODE_CLOSE) {
+                    if (opcode != WebSocketIO.OPCODE_TEXT) {
+                        continue;
+                    }
+                    String text = io.getText();
+                    if (text.startsWith(WallSimulator.ACK)) {
+                        acked = true;
+                        onAck(System.nanoTime());
+                    } else if (text.equals(WireFormat.RESYNC)) {
+                        resyncs++;
+                        resyncRequested = true;
+                    }
+                }
+            } catch (IOException e) {
+                // The receiver dropped; the replay stops at its next event
+            } finally {
+                readerStopped();
+            }
+        }
+
+        private static void waitUntil(long deadline) {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.myapplication.tools;
+
+import com.example.myapplication.FrameWindow;
+import com.example.myapplication.GameEngine;
+import com.example.myapplication.GravityScheduler;
+
+import java.io.File;
+import java.io.IOException;
+
+// Records seeded games into a SessionRecording. The game runs on a simulated clock in 60 Hz frames
+// like GameBoardView's vsync loop: each frame applies the button AutoPlayer pressed since the last
+// one (it presses one every inputMillis), lets a GravityScheduler drop and lock blocks on the level
+// curve with its lock delay, then sends a frame once the same FrameWindow as MainActivity lets it.
+// So the recording holds exactly the boards and messages the app would send for that game, with
+// their timing, in a fraction of the time.
+//
+//   java com.example.myapplication.tools.SessionRecorder out.tsr [games] [seed] [inputMillis]
+public class SessionRecorder {
+    private static final long FRAME_NANOS = 16_666_667L; // One vsync at 60 Hz
+    private static final long MAX_GAME_NANOS = 10 * 60 * 1_000_000_000L; // In case the bot never tops out
+    private static final long GAP_NANOS = 500_000_000L; // Between games
+
+    private final SessionRecording recording = new SessionRecording();
+    private final FrameWindow frameWindow = new FrameWindow();
+    private final long inputNanos;
+    private long now; // Simulated System.nanoTime()
+    private long frameTime = -1; // When the scheduled frame goes out, -1 if none
+
+    public SessionRecorder(long inputMillis) {
+        this.inputNanos = inputMillis * 1_000_000;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: SessionRecorder out.tsr [games] [seed] [inputMillis]");
+            return;
+        }
+        File out = new File(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        long inputMillis = args.length > 3 ? Long.parseLong(args[3]) : 150;
+
+        SessionRecorder recorder = new SessionRecorder(inputMillis);
+        for (int i = 0; i < games; i++) {
+            recorder.recordGame(seed + i);
+        }
+        recorder.recording.write(out);
+        System.out.printf("Recorded %d games, %d events, %.1f s of play into %s (%d bytes)%n",
+                games, recorder.recording.getEvents().size(), recorder.recording.getDurationMillis() / 1000.0,
+                out, out.length());
+    }
+
+    public SessionRecording getRecording() {
+        return recording;
+    }
+
+    // Play one game from the current time on and append what the app would send
+    public void recordGame(long seed) {
+        final GameEngine engine = new GameEngine(seed);
+        AutoPlayer player = new AutoPlayer(engine, seed, true);
+        engine.setBoardListener(new GameEngine.BoardListener() {
+            @Override
+            public void onBoardChanged() {
+                scheduleFrame();
+            }
+        });
+
+        GravityScheduler gravity = new GravityScheduler(engine);
+        long start = now;
+        long nextInput = now + inputNanos;
+        gravity.start(now);
+        scheduleFrame(); // MainActivity.onResume brings the wall up to date
+        while (!engine.isGameOver() && now - start < MAX_GAME_NANOS) {
+            // GameBoardView.onFrame: queued inputs, then gravity, then timed tasks due around now
+            while (nextInput <= now && !engine.isGameOver()) {
+                engine.apply(player.nextInput());
+                nextInput += inputNanos;
+            }
+            gravity.update(now);
+            if (frameTime >= 0 && frameTime - now <= FrameWindow.SLACK_NANOS) {
+                frameTime = -1;
+                frameWindow.onFrame(now / 1_000_000);
+                recording.addBoard(now / 1_000_000, engine.getSnapshot());
+            }
+            now += FRAME_NANOS;
+        }
+
+        // MainActivity.onGameOver sends a frame still waiting before the score screen goes up
+        frameWindow.cancel();
+        if (engine.isGameOver()) {
+            if (frameTime >= 0) {
+                recording.addBoard(now / 1_000_000, engine.getSnapshot());
+            }
+            recording.addGameOver(now / 1_000_000, engine.getScore());
+        }
+        frameTime = -1;
+        now += GAP_NANOS;
+    }
+
+    private void scheduleFrame() {
+        long wait = frameWindow.schedule(now / 1_000_000);
+        if (wait >= 0) {
+            frameTime = now + wait * 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.myapplication.tools;
+
+import com.example.myapplication.BoardGrid;
+import com.example.myapplication.BoardSnapshot;
+import com.example.myapplication.GameBoardState;
+import com.example.myapplication.Palette;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// A recorded session: the boards MainActivity handed to its FrameSender, the text messages it
+// sent and the games' ends, each with the time it happened. Boards are kept as plain palette indices rather than
+// encoded frames, so one recording replays through whatever wire format the sender speaks.
+//
+// File format, gzipped: int MAGIC, int VERSION, then events of
+//   byte BOARD, long time ms, 200 bytes of palette indices in row-major order
+//   byte TEXT, long time ms, UTF string
+//   byte GAME_OVER, long time ms, int score
+// closed by byte END. Version 1 files, which marked the end of a game with the text GAMEOVER,<score>,
+// still read.
+public class SessionRecording {
+    public static final int MAGIC = 0x54535231; // "TSR1"
+    public static final int VERSION = 2;
+
+    public static final int END = 0;
+    public static final int BOARD = 1;
+    public static final int TEXT = 2;
+    public static final int GAME_OVER = 3; // The phone puts the score screen on the wall
+
+    private static final int NUM_CELLS = BoardGrid.NUM_ROWS * BoardGrid.NUM_COLS;
+
+    public static class Event {
+        public final int kind;
+        public final long timeMillis;
+        public final byte[] cells; // BOARD only
+        public final String text; // TEXT only
+        public final int score; // GAME_OVER only
+
+        Event(int kind, long timeMillis, byte[] cells, String text, int score) {
+            this.kind = kind;
+            this.timeMillis = timeMillis;
+            this.cells = cells;
+            this.text = text;
+            this.score = score;
+        }
+
+        // Fill board with the cells of a BOARD event
+        public void toBoard(GameBoardState board) {
+            board.clear();
+            for (int i = 0; i < NUM_CELLS; i++) {
+                if (cells[i] != Palette.EMPTY) {
+                    board.set(i / BoardGrid.NUM_COLS, i % BoardGrid.NUM_COLS, cells[i]);
+                }
+            }
+        }
+    }
+
+    private final List<Event> events = new ArrayList<>();
+
+    public void addBoard(long timeMillis, BoardSnapshot board) {
+        byte[] cells = new byte[NUM_CELLS];
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            for (int col = 0; col < BoardGrid.NUM_COLS; col++) {
+                if (board.isOccupied(row, col)) {
+                    cells[row * BoardGrid.NUM_COLS + col] = (byte) board.colorAt(row, col);
+                }
+            }
+        }
+        events.add(new Event(BOARD, timeMillis, cells, null, 0));
+    }
+
+    public void addText(long timeMillis, String text) {
+        events.add(new Event(TEXT, timeMillis, null, text, 0));
+    }
+
+    public void addGameOver(long timeMillis, int score) {
+        events.add(new Event(GAME_OVER, timeMillis, null, null, score));
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    // Time from the first event to the last
+    public long getDurationMillis() {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        return events.get(events.size() - 1).timeMillis - events.get(0).timeMillis;
+    }
+
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Event event : events) {
+                out.writeByte(event.kind);
+                out.writeLong(event.timeMillis);
+                if (event.kind == BOARD) {
+                    out.write(event.cells);
+                } else if (event.kind == GAME_OVER) {
+                    out.writeInt(event.score);
+                } else {
+                    out.writeUTF(event.text);
+                }
+            }
+            out.writeByte(END);
+        }
+    }
+
+    public static SessionRecording read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a session recording: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION && version != 1) {
+                throw new IOException("Unsupported recording version " + version + ": " + file);
+            }
+            SessionRecording recording = new SessionRecording();
+            int kind;
+            while ((kind = in.readUnsignedByte()) != END) {
+                long time = in.readLong();
+                if (kind == BOARD) {
+                    byte[] cells = new byte[NUM_CELLS];
+                    in.readFully(cells);
+                    recording.events.add(new Event(BOARD, time, cells, null, 0));
+                } else if (kind == TEXT) {
+                    String text = in.readUTF();
+                    if (version == 1 && text.startsWith("GAMEOVER,")) {
+                        recording.addGameOver(time, Integer.parseInt(text.substring("GAMEOVER,".length()).trim()));
+                    } else {
+                        recording.addText(time, text);
+                    }
+                } else if (kind == GAME_OVER) {
+                    recording.addGameOver(time, in.readInt());
+                } else {
+                    throw new IOException("Unknown event " + kind + " in " + file);
+                }
+            }
+            return recording;
+        }
+    }
+}
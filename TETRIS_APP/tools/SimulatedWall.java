@@ -0,0 +1,170 @@
+package com.example.myapplication.tools;
+
+import com.example.myapplication.BoardGrid;
+import com.example.myapplication.FrameDecoder;
+import com.example.myapplication.Palette;
+import com.example.myapplication.WireFormat;
+
+import java.util.Arrays;
+
+// State of one LED wall, applying messages the way Wall_Tetris_Matrix.ino does: the same header
+// checks, sequence and resync rules, palette handling and serpentine LED layout, into an 800-LED
+// RGB buffer. Timing is left to the caller, which is told whenever the firmware would call
+// FastLED.show().
+public class SimulatedWall {
+    public static final int NUM_LEDS = 800;
+    public static final int LEDS_PER_ROW = 20;
+
+    // What applying a message led to
+    public enum Result {
+        SHOWN, // The LEDs changed and were pushed out with FastLED.show()
+        APPLIED, // State changed without a show
+        RESYNC, // Sequence gap; the wall answers RESYNC and ignores deltas until a keyframe
+        IGNORED // Bad, unknown or out-of-sequence message
+    }
+
+    private final int[] leds = new int[NUM_LEDS]; // 0xRRGGBB per LED
+    private final byte[] boardCells = new byte[BoardGrid.NUM_ROWS * BoardGrid.NUM_COLS];
+    private final int[] palette = new int[WireFormat.MAX_PALETTE_SIZE];
+    private int paletteSize;
+    private final int[] ledIndices = new int[4];
+
+    private boolean frameSynced;
+    private boolean resyncRequested;
+    private int expectedSequence;
+
+    public SimulatedWall() {
+        int[] colors = Palette.colors();
+        System.arraycopy(colors, 0, palette, 0, colors.length);
+        paletteSize = colors.length;
+    }
+
+    // A client connected or disconnected
+    public void onConnection() {
+        frameSynced = false;
+        resyncRequested = false;
+    }
+
+    public Result applyText(String data) {
+        if (data.equals("TURN_OFF")) {
+            turnOff();
+            return Result.SHOWN;
+        }
+        return Result.IGNORED;
+    }
+
+    public Result applyBinary(byte[] data, int offset, int length) {
+        int count;
+        try {
+            count = FrameDecoder.checkHeader(data, offset, length);
+        } catch (IllegalArgumentException e) {
+            return Result.IGNORED;
+        }
+        int type = FrameDecoder.type(data, offset);
+        if (type == WireFormat.TYPE_PALETTE) {
+            return applyPalette(data, offset + WireFormat.HEADER_SIZE, count);
+        }
+        if (type == WireFormat.TYPE_LEDS) {
+            // Raw pixels over the board; deltas wait for the next keyframe
+            FrameDecoder.decodeLeds(data, offset, length, leds);
+            frameSynced = false;
+            resyncRequested = false;
+            return Result.SHOWN;
+        }
+
+        int sequence = FrameDecoder.sequence(data, offset);
+        boolean keyframe = WireFormat.isKeyframe(type);
+        if (!keyframe && (!frameSynced || sequence != expectedSequence)) {
+            frameSynced = false;
+            if (!resyncRequested) {
+                resyncRequested = true;
+                return Result.RESYNC;
+            }
+            return Result.IGNORED;
+        }
+        frameSynced = true;
+        resyncRequested = false;
+        expectedSequence = (sequence + 1) & WireFormat.SEQUENCE_MASK;
+
+        if (keyframe) {
+            Arrays.fill(leds, 0);
+            Arrays.fill(boardCells, (byte) Palette.EMPTY);
+        }
+        boolean spans = WireFormat.hasSpans(type);
+        int pos = offset + WireFormat.HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            int row = data[pos] & 0xFF;
+            int firstCol = (data[pos + 1] & 0xFF) >> 4;
+            int lastCol = spans ? data[pos + 1] & 0x0F : firstCol;
+            int color = spans ? data[pos + 2] & 0xFF : data[pos + 1] & 0x0F;
+            pos += WireFormat.recordSize(type);
+            if (row >= BoardGrid.NUM_ROWS || lastCol >= BoardGrid.NUM_COLS || firstCol > lastCol || color >= paletteSize) {
+                continue;
+            }
+            for (int col = firstCol; col <= lastCol; col++) {
+                setCell(row, col, color);
+            }
+        }
+        return Result.SHOWN;
+    }
+
+    private Result applyPalette(byte[] data, int pos, int count) {
+        if (count == 0 || count > WireFormat.MAX_PALETTE_SIZE) {
+            return Result.IGNORED;
+        }
+        for (int i = 0; i < count; i++, pos += WireFormat.PALETTE_RECORD_SIZE) {
+            palette[i] = (data[pos] & 0xFF) << 16 | (data[pos + 1] & 0xFF) << 8 | (data[pos + 2] & 0xFF);
+        }
+        paletteSize = count;
+        if (!frameSynced) {
+            return Result.APPLIED;
+        }
+        for (int row = 0; row < BoardGrid.NUM_ROWS; row++) {
+            for (int col = 0; col < BoardGrid.NUM_COLS; col++) {
+                int color = boardCells[row * BoardGrid.NUM_COLS + col];
+                setCell(row, col, color < paletteSize ? color : Palette.EMPTY);
+            }
+        }
+        return Result.SHOWN;
+    }
+
+    private void setCell(int row, int col, int color) {
+        boardCells[row * BoardGrid.NUM_COLS + col] = (byte) color;
+        calculateLEDIndex(row, col, ledIndices);
+        for (int index : ledIndices) {
+            leds[index] = palette[color] & 0xFFFFFF;
+        }
+    }
+
+    private void turnOff() {
+        Arrays.fill(leds, 0);
+        Arrays.fill(boardCells, (byte) Palette.EMPTY);
+        frameSynced = false;
+    }
+
+    // Each cell is a 2x2 block of LEDs on a strip that snakes across the wall: LED rows 0, 2, 4...
+    // run right to left, the rows between them left to right
+    public static void calculateLEDIndex(int row, int col, int[] ledIndices) {
+        int actualRow1 = row * 2;
+        int actualRow2 = actualRow1 + 1;
+        int actualCol1 = col * 2;
+        int actualCol2 = actualCol1 + 1;
+
+        ledIndices[0] = actualRow1 * LEDS_PER_ROW + (LEDS_PER_ROW - 1 - actualCol1);
+        ledIndices[1] = ledIndices[0] - 1;
+        ledIndices[2] = actualRow2 * LEDS_PER_ROW + actualCol2;
+        ledIndices[3] = ledIndices[2] - 1;
+    }
+
+    public int getLed(int index) {
+        return leds[index];
+    }
+
+    public int getCellColor(int row, int col) {
+        return boardCells[row * BoardGrid.NUM_COLS + col];
+    }
+
+    public boolean isSynced() {
+        return frameSynced;
+    }
+}
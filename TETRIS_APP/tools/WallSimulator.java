@@ -0,0 +1,210 @@
+package com.example.myapplication.tools;
+
+import com.example.myapplication.WireFormat;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+// Stand-in for the ESP32 LED wall on a desktop JVM, so sender changes can be measured without the
+// hardware. Serves the same WebSocket messages as Wall_Tetris_Matrix.ino, applies them to a
+// SimulatedWall and holds the connection for as long as FastLED.show() takes on the real strip,
+// which is what makes a slow wall push back on the phone. Every connection gets its own wall.
+// Prints once a second: shows per second, messages and bytes received, parse cost and the apply
+// latency from a message arriving to its show completing.
+//
+//   java com.example.myapplication.tools.WallSimulator [port] [--ack] [--no-show-delay]
+//
+// With --ack every message is answered with the text "ACK,<n>", n counting messages on the
+// connection from 1, so a client can time each message end to end.
+public class WallSimulator {
+    public static final int DEFAULT_PORT = 8081; // The wall listens on 81, which needs root here
+    public static final String ACK = "ACK";
+
+    // WS2813 at 800 kHz: 24 bits per LED at 1.25 us each, then a latch gap of at least 280 us
+    public static final long NANOS_PER_LED = 30_000;
+    public static final long RESET_NANOS = 300_000;
+    public static final long SHOW_NANOS = SimulatedWall.NUM_LEDS * NANOS_PER_LED + RESET_NANOS;
+
+    private final boolean ack;
+    private final boolean showDelay;
+    private final Stats stats = new Stats();
+
+    public WallSimulator(boolean ack, boolean showDelay) {
+        this.ack = ack;
+        this.showDelay = showDelay;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        boolean ack = false;
+        boolean showDelay = true;
+        for (String arg : args) {
+            if (arg.equals("--ack")) {
+                ack = true;
+            } else if (arg.equals("--no-show-delay")) {
+                showDelay = false;
+            } else {
+                port = Integer.parseInt(arg);
+            }
+        }
+        WallSimulator simulator = new WallSimulator(ack, showDelay);
+        simulator.startReporter();
+        simulator.serve(port);
+    }
+
+    public void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port)) {
+            System.out.println("Simulated wall listening on ws://localhost:" + port
+                    + (showDelay ? ", " + SHOW_NANOS / 1000 + " us per show" : ", no show delay"));
+            while (true) {
+                final Socket socket = server.accept();
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        handle(socket);
+                    }
+                }, "Wall-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    // One client: read a message, apply it, hold for the show, repeat. Like the firmware, nothing
+    // else is read while a show is in progress.
+    private void handle(Socket socket) {
+        SimulatedWall wall = new SimulatedWall();
+        WebSocketIO io;
+        try {
+            io = WebSocketIO.accept(socket);
+        } catch (IOException e) {
+            System.out.println("Handshake failed: " + e.getMessage());
+            return;
+        }
+        System.out.println("Client connected: " + io.getRemoteAddress());
+        wall.onConnection();
+        long messages = 0;
+        try {
+            int opcode;
+            while ((opcode = io.readMessage()) != WebSocketIO.OPCODE_CLOSE) {
+                long received = System.nanoTime();
+                SimulatedWall.Result result;
+                if (opcode == WebSocketIO.OPCODE_TEXT) {
+                    result = wall.applyText(io.getText());
+                } else {
+                    result = wall.applyBinary(io.getPayload(), 0, io.getPayloadLength());
+                }
+                long parsed = System.nanoTime();
+                if (result == SimulatedWall.Result.RESYNC) {
+                    io.sendText(WireFormat.RESYNC);
+                }
+                long done = parsed;
+                if (result == SimulatedWall.Result.SHOWN) {
+                    done = parsed + SHOW_NANOS;
+                    if (showDelay) {
+                        waitUntil(done);
+                    }
+                }
+                messages++;
+                if (ack) {
+                    io.sendText(ACK + "," + messages);
+                }
+                stats.record(io.getPayloadLength(), parsed - received, done - received,
+                        result == SimulatedWall.Result.SHOWN, result == SimulatedWall.Result.RESYNC);
+            }
+        } catch (IOException e) {
+            System.out.println("Client dropped: " + e.getMessage());
+        } finally {
+            wall.onConnection();
+            io.close();
+            System.out.println("Client gone after " + messages + " messages: " + io.getRemoteAddress());
+        }
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private void startReporter() {
+        Thread reporter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    String line = stats.drain();
+                    if (line != null) {
+                        System.out.println(line);
+                    }
+                }
+            }
+        }, "WallReport");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    // Per-second counters shared by all connections
+    private static class Stats {
+        private long messages;
+        private long bytes;
+        private long shows;
+        private long resyncs;
+        private long parseNanos;
+        private long[] latencies = new long[256];
+        private int latencyCount;
+        private long since = System.nanoTime();
+
+        synchronized void record(int length, long parse, long latency, boolean shown, boolean resync) {
+            messages++;
+            bytes += length;
+            parseNanos += parse;
+            if (shown) {
+                shows++;
+            }
+            if (resync) {
+                resyncs++;
+            }
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            latencies[latencyCount++] = latency;
+        }
+
+        // Summary line for the interval just ended, null if nothing arrived; resets the counters
+        synchronized String drain() {
+            long now = System.nanoTime();
+            double seconds = (now - since) / 1e9;
+            since = now;
+            if (messages == 0) {
+                return null;
+            }
+            Arrays.sort(latencies, 0, latencyCount);
+            String line = String.format(Locale.ROOT,
+                    "%.1f fps, %d msgs, %.0f B/s, parse %.1f us, apply p50 %.2f ms p99 %.2f ms max %.2f ms, %d resyncs",
+                    shows / seconds, messages, bytes / seconds, parseNanos / 1e3 / messages,
+                    percentile(0.50), percentile(0.99), latencies[latencyCount - 1] / 1e6, resyncs);
+            messages = 0;
+            bytes = 0;
+            shows = 0;
+            resyncs = 0;
+            parseNanos = 0;
+            latencyCount = 0;
+            return line;
+        }
+
+        private double percentile(double p) {
+            int index = (int) Math.min(latencyCount - 1, Math.round(p * (latencyCount - 1)));
+            return latencies[index] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.myapplication.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+// Minimal RFC 6455 WebSocket over a plain Socket for the desktop tools: the opening handshake for
+// either side, and whole text and binary messages with fragments joined, pings answered and
+// client frames masked. No extensions and no TLS, which is all the wall speaks.
+public class WebSocketIO {
+    public static final int OPCODE_CONTINUATION = 0x0;
+    public static final int OPCODE_TEXT = 0x1;
+    public static final int OPCODE_BINARY = 0x2;
+    public static final int OPCODE_CLOSE = 0x8;
+    public static final int OPCODE_PING = 0x9;
+    public static final int OPCODE_PONG = 0xA;
+
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final boolean client; // Clients mask what they send, servers do not
+    private final Random maskRandom = new Random();
+    private final byte[] readHeader = new byte[8];
+    private final byte[] writeHeader = new byte[14];
+    private final byte[] readMask = new byte[4];
+
+    private byte[] payload = new byte[1024]; // Last message read, reused
+    private int payloadLength;
+    private int opcode;
+
+    private WebSocketIO(Socket socket, boolean client) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+        this.client = client;
+        socket.setTcpNoDelay(true);
+    }
+
+    // Answer the opening handshake of a client that just connected
+    public static WebSocketIO accept(Socket socket) throws IOException {
+        WebSocketIO io = new WebSocketIO(socket, false);
+        String key = null;
+        String line = io.readLine();
+        if (!line.startsWith("GET ")) {
+            throw new IOException("Not a WebSocket upgrade: " + line);
+        }
+        while (!(line = io.readLine()).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                key = line.substring(colon + 1).trim();
+            }
+        }
+        if (key == null) {
+            throw new IOException("Handshake without Sec-WebSocket-Key");
+        }
+        String response = "HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n";
+        io.out.write(response.getBytes(StandardCharsets.US_ASCII));
+        io.out.flush();
+        return io;
+    }
+
+    // Connect to ws://host:port/path and complete the opening handshake
+    public static WebSocketIO connect(String host, int port, String path) throws IOException {
+        Socket socket = new Socket(host, port);
+        WebSocketIO io = new WebSocketIO(socket, true);
+        byte[] nonce = new byte[16];
+        io.maskRandom.nextBytes(nonce);
+        String key = Base64.getEncoder().encodeToString(nonce);
+        String request = "GET " + path + " HTTP/1.1\r\n"
+                + "Host: " + host + ":" + port + "\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Key: " + key + "\r\n"
+                + "Sec-WebSocket-Version: 13\r\n\r\n";
+        io.out.write(request.getBytes(StandardCharsets.US_ASCII));
+        io.out.flush();
+
+        String status = io.readLine();
+        if (!status.contains(" 101 ")) {
+            socket.close();
+            throw new IOException("Upgrade refused: " + status);
+        }
+        String expected = acceptKey(key);
+        boolean accepted = false;
+        String line;
+        while (!(line = io.readLine()).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Accept")) {
+                accepted = line.substring(colon + 1).trim().equals(expected);
+            }
+        }
+        if (!accepted) {
+            socket.close();
+            throw new IOException("Bad Sec-WebSocket-Accept");
+        }
+        return io;
+    }
+
+    static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] digest = sha1.digest((key + GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Block until the next text or binary message and return its opcode, or OPCODE_CLOSE once the
+    // peer closes. The message is in getPayload() until the next call.
+    public int readMessage() throws IOException {
+        payloadLength = 0;
+        opcode = -1;
+        while (true) {
+            int b0 = in.read();
+            int b1 = in.read();
+            if (b0 < 0 || b1 < 0) {
+                return OPCODE_CLOSE;
+            }
+            boolean fin = (b0 & 0x80) != 0;
+            int frameOpcode = b0 & 0x0F;
+            long length = b1 & 0x7F;
+            if (length == 126) {
+                readFully(readHeader, 0, 2);
+                length = ((readHeader[0] & 0xFF) << 8) | (readHeader[1] & 0xFF);
+            } else if (length == 127) {
+                readFully(readHeader, 0, 8);
+                length = 0;
+                for (int i = 0; i < 8; i++) {
+                    length = (length << 8) | (readHeader[i] & 0xFF);
+                }
+            }
+            byte[] mask = null;
+            if ((b1 & 0x80) != 0) {
+                mask = readMask;
+                readFully(mask, 0, 4);
+            }
+            if (length > Integer.MAX_VALUE - payloadLength) {
+                throw new IOException("Message too large");
+            }
+
+            if (frameOpcode >= OPCODE_CLOSE) {
+                // Control frames may arrive between fragments and carry at most 125 bytes
+                byte[] control = new byte[(int) length];
+                readFully(control, 0, control.length);
+                unmask(control, 0, control.length, mask);
+                if (frameOpcode == OPCODE_PING) {
+                    sendFrame(OPCODE_PONG, control, 0, control.length);
+                } else if (frameOpcode == OPCODE_CLOSE) {
+                    sendFrame(OPCODE_CLOSE, control, 0, Math.min(control.length, 2));
+                    return OPCODE_CLOSE;
+                }
+                continue;
+            }
+
+            if (frameOpcode != OPCODE_CONTINUATION) {
+                opcode = frameOpcode;
+            }
+            int start = payloadLength;
+            ensureCapacity(start + (int) length);
+            readFully(payload, start, (int) length);
+            unmask(payload, start, (int) length, mask);
+            payloadLength += (int) length;
+            if (fin) {
+                return opcode;
+            }
+        }
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    public String getText() {
+        return new String(payload, 0, payloadLength, StandardCharsets.UTF_8);
+    }
+
+    public void sendText(String text) throws IOException {
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        sendFrame(OPCODE_TEXT, data, 0, data.length);
+    }
+
+    public void sendBinary(byte[] data, int offset, int length) throws IOException {
+        sendFrame(OPCODE_BINARY, data, offset, length);
+    }
+
+    // One unfragmented frame, written and flushed under the lock so threads can share a connection
+    private synchronized void sendFrame(int frameOpcode, byte[] data, int offset, int length) throws IOException {
+        int pos = 0;
+        writeHeader[pos++] = (byte) (0x80 | frameOpcode);
+        int maskBit = client ? 0x80 : 0;
+        if (length < 126) {
+            writeHeader[pos++] = (byte) (maskBit | length);
+        } else if (length <= 0xFFFF) {
+            writeHeader[pos++] = (byte) (maskBit | 126);
+            writeHeader[pos++] = (byte) (length >> 8);
+            writeHeader[pos++] = (byte) length;
+        } else {
+            writeHeader[pos++] = (byte) (maskBit | 127);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                writeHeader[pos++] = (byte) ((long) length >> shift);
+            }
+        }
+        if (!client) {
+            out.write(writeHeader, 0, pos);
+            out.write(data, offset, length);
+        } else {
+            byte[] mask = new byte[4];
+            maskRandom.nextBytes(mask);
+            System.arraycopy(mask, 0, writeHeader, pos, 4);
+            out.write(writeHeader, 0, pos + 4);
+            byte[] masked = Arrays.copyOfRange(data, offset, offset + length);
+            unmask(masked, 0, length, mask);
+            out.write(masked);
+        }
+        out.flush();
+    }
+
+    public void close() {
+        try {
+            sendFrame(OPCODE_CLOSE, new byte[] {0x03, (byte) 0xE8}, 0, 2); // 1000, normal closure
+        } catch (IOException ignored) {
+            // The peer is already gone
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+    }
+
+    public String getRemoteAddress() {
+        return String.valueOf(socket.getRemoteSocketAddress());
+    }
+
+    private static void unmask(byte[] data, int offset, int length, byte[] mask) {
+        if (mask == null) {
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            data[offset + i] ^= mask[i & 3];
+        }
+    }
+
+    private void readFully(byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = in.read(buffer, offset, length);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        if (c < 0 && line.length() == 0) {
+            throw new EOFException("Connection closed during handshake");
+        }
+        return line.toString();
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed > payload.length) {
+            payload = Arrays.copyOf(payload, Math.max(needed, payload.length * 2));
+        }
+    }
+}
@@ -1,20 +1,58 @@
 #include <WiFi.h>
 #include <WebSocketsServer.h>
 #include <FastLED.h>
-#include <vector>
 
 #define LED_PIN    2
 #define NUM_LEDS  800
 #define LED_TYPE  WS2813
 
+// Binary board frames, see WireFormat.java on the phone
+#define FRAME_MAGIC        0x54
+#define FRAME_VERSION      5
+#define FRAME_TYPE_CELLS   1
+#define FRAME_TYPE_KEYFRAME 2
+#define FRAME_TYPE_SPANS   3
+#define FRAME_TYPE_SPAN_KEYFRAME 4
+#define FRAME_TYPE_PALETTE 5
+#define FRAME_TYPE_LEDS    6
+#define FRAME_HEADER_SIZE  7
+#define CELL_RECORD_SIZE   2
+#define SPAN_RECORD_SIZE   3
+#define PALETTE_RECORD_SIZE 3
+#define LED_RANGE_HEADER_SIZE 3
+#define LED_SIZE           3
+#define MAX_PALETTE_SIZE   16
+#define BOARD_ROWS         20
+#define BOARD_COLS         10
+
+// Palette indexed by the color of every cell, index 0 is off. The phone sends its table in a
+// palette frame on every connection; these defaults match Palette.java until it does.
+CRGB palette[MAX_PALETTE_SIZE] = {
+  CRGB(0, 0, 0),       // EMPTY
+  CRGB(255, 0, 0),     // RED
+  CRGB(0, 255, 0),     // GREEN
+  CRGB(0, 0, 255),     // BLUE
+  CRGB(255, 165, 0),   // ORANGE
+  CRGB(128, 0, 128),   // PURPLE
+  CRGB(255, 105, 180)  // PINK
+};
+uint8_t paletteSize = 7;
+
+// Palette index of every board cell, so a new palette can repaint the board in place
+uint8_t boardCells[BOARD_ROWS][BOARD_COLS];
+
 const char *ssid = "ESP32_Tetris";
 const char *password = "tetris123";
 
 CRGB leds[NUM_LEDS];
 bool sendData = true;
-bool startLightUpSequence = false;
 WebSocketsServer webSocket = WebSocketsServer(81);
 
+// Frame stream state: deltas only apply in sequence, a gap waits for the next keyframe
+bool frameSynced = false;
+bool resyncRequested = false;
+uint16_t expectedSequence = 0;
+
 void setup() {
   Serial.begin(115200);
   FastLED.addLeds<LED_TYPE, LED_PIN, GRB>(leds, NUM_LEDS);
@@ -31,258 +69,170 @@ void setup() {
 
 void loop() {
   webSocket.loop();
-  if (startLightUpSequence) {
-    lightUpGroupsWithDelay();
-  }
 }
 
 void webSocketEvent(uint8_t num, WStype_t type, uint8_t * payload, size_t length) {
-    if (type == WStype_TEXT) {
+    if (type == WStype_CONNECTED || type == WStype_DISCONNECTED) {
+        // Whatever was sent before is gone, the phone starts a new connection with a keyframe
+        frameSynced = false;
+        resyncRequested = false;
+    } else if (type == WStype_TEXT) {
         String data = String((char *)payload);
         Serial.println("Data received: " + data);
 
-        if (data.startsWith("GAMEOVER")) {
-            // Extract the score from the message
-            int commaIdx = data.indexOf(',');
-            String scoreStr = data.substring(commaIdx + 1);
-
-            // Turn off all LEDs and display the score
-            turnOffLEDs();
-            displayTextOnLEDs();
-            displayScoreOnLEDs(scoreStr);
-            startLightUpSequence = true;
-
-        } else if (data == "TURN_OFF") {
+        // The score screen comes from the phone as LED frames; only TURN_OFF is left as text
+        if (data == "TURN_OFF") {
             sendData = false;
             turnOffLEDs();
         } else {
-            sendData = true;
-            updateLEDs(data);
+            Serial.println("Ignoring unknown text message");
         }
+    } else if (type == WStype_BIN) {
+        sendData = true;
+        updateLEDsBinary(num, payload, length);
     }
 }
 
-void displayScoreOnLEDs(String scoreStr) {
-    // Initialize the left and right digits
-    int leftDigit = 0;
-    int rightDigit;
-    std::vector<int> left_indices;
-    std::vector<int> right_indices;
-
-    // Check if the score is one or two digits
-    if (scoreStr.length() == 1) {
-        rightDigit = scoreStr.toInt();
-    } else {
-        leftDigit = scoreStr.substring(0, 1).toInt();
-        rightDigit = scoreStr.substring(1).toInt();
+void updateLEDsBinary(uint8_t num, uint8_t *payload, size_t length) {
+    if (length < FRAME_HEADER_SIZE || payload[0] != FRAME_MAGIC || payload[1] != FRAME_VERSION) {
+        Serial.println("Dropping frame with bad header");
+        return;
     }
-    Serial.print("Left Digit: ");
-    Serial.println(leftDigit);
-    Serial.print("Right Digit: ");
-    Serial.println(rightDigit);
-
-    switch (leftDigit) {
-        case 0:
-            left_indices  = {547, 548, 549, 570, 572, 587, 589, 610, 612, 627, 629, 650, 651, 652};
-            break;
-        case 1:
-            left_indices  = {548, 549, 570, 589, 610, 629, 650};
-            break;
-        case 2:
-            left_indices  = {547, 548, 549, 570, 587, 588, 589, 612, 627, 650, 651, 652};
-            break;
-        case 3:
-            left_indices  = {547, 548, 549, 570, 587, 588, 589, 610, 629, 650, 651, 652};
-            break;
-        case 4:
-            left_indices  = {547, 549, 570, 572, 587, 588, 589, 610, 629, 650};
-            break;
-        case 5:
-            left_indices  = {547, 548, 549, 572, 587, 588, 589, 610, 629, 650, 651, 652};
-            break;
-        case 6:
-            left_indices  = {547, 548, 549, 572, 587, 588, 589, 610, 612, 627, 629, 650, 651, 652};
-            break;
-        case 7:
-            left_indices  = {547, 548, 549, 570, 589, 610, 629, 650};
-            break;
-        case 8:
-            left_indices  = {547, 548, 549, 570, 572, 587, 588, 589, 610, 611, 612, 627, 629, 650, 651, 652};
-            break;
-        case 9:
-            left_indices  = {547, 548, 549, 570, 572, 587, 588, 589, 610, 627, 629, 650, 651, 652};
-            break;
-        default:
-            break;
+    uint8_t frameType = payload[2];
+    if (frameType < FRAME_TYPE_CELLS || frameType > FRAME_TYPE_LEDS) {
+        Serial.println("Dropping frame of unknown type");
+        return;
     }
-
-    switch (rightDigit) {
-        case 0:
-            right_indices  = {551, 552, 553, 566, 568, 591, 593, 606, 608, 631, 633, 646, 647, 648};
-            break;
-        case 1:
-            right_indices  = {551, 552, 567, 592, 607, 632, 647};
-            break;
-        case 2:
-            right_indices  = {551, 552, 553, 566, 591, 592, 593, 608, 631, 646, 647, 648};
-            break;
-        case 3:
-            right_indices  = {551, 552, 553, 566, 591, 592, 593, 606, 633, 646, 647, 648};
-            break;
-        case 4:
-            right_indices  = {551, 553, 566, 568, 591, 592, 593, 606, 633, 646};
-            break;
-        case 5:
-            right_indices  = {551, 552, 553, 568, 591, 592, 593, 606, 633, 646, 647, 648};
-            break;
-        case 6:
-            right_indices  = {551, 552, 553, 568, 591, 592, 593, 606, 608, 631, 633, 646, 647, 648};
-            break;
-        case 7:
-            right_indices  = {551, 552, 553, 566, 593, 606, 633, 646};
-            break;
-        case 8:
-            right_indices  = {551, 552, 553, 566, 568, 591, 592, 593, 606, 607, 608, 631, 633, 646, 647, 648};
-            break;
-        case 9:
-            right_indices  = {551, 552, 553, 566, 568, 591, 592, 593, 606, 631, 633, 646, 647, 648};
-            break;
-        default:
-            break;
+    if (frameType == FRAME_TYPE_LEDS) {
+        // Ranges vary in length; they stand outside the cell sequence like palette frames
+        updateLEDRanges(payload, length);
+        return;
+    }
+    bool keyframe = frameType == FRAME_TYPE_KEYFRAME || frameType == FRAME_TYPE_SPAN_KEYFRAME;
+    bool spans = frameType == FRAME_TYPE_SPANS || frameType == FRAME_TYPE_SPAN_KEYFRAME;
+    size_t recordSize = frameType == FRAME_TYPE_PALETTE ? PALETTE_RECORD_SIZE
+            : spans ? SPAN_RECORD_SIZE : CELL_RECORD_SIZE;
+    uint16_t sequence = (payload[3] << 8) | payload[4];
+    uint16_t count = (payload[5] << 8) | payload[6];
+    if (length != FRAME_HEADER_SIZE + (size_t) count * recordSize) {
+        Serial.println("Dropping frame with bad length");
+        return;
     }
 
-    // Use the size() method to get the number of elements in the vector
-    for (int i = 0; i < left_indices.size(); i++) {
-        leds[left_indices[i]] = CRGB::Blue;  
+    // Palette frames stand outside the cell sequence
+    if (frameType == FRAME_TYPE_PALETTE) {
+        updatePalette(payload + FRAME_HEADER_SIZE, count);
+        return;
     }
 
-    for (int i = 0; i < right_indices.size(); i++) {
-        leds[right_indices[i]] = CRGB::Blue;  
+    // A delta only makes sense on top of the frame before it; after a gap ask for a keyframe once
+    if (!keyframe && (!frameSynced || sequence != expectedSequence)) {
+        frameSynced = false;
+        if (!resyncRequested) {
+            resyncRequested = true;
+            webSocket.sendTXT(num, "RESYNC");
+            Serial.println("Frame gap, requesting resync");
+        }
+        return;
+    }
+    frameSynced = true;
+    resyncRequested = false;
+    expectedSequence = sequence + 1;
+
+    // A keyframe carries every lit cell, so start it from a dark board
+    if (keyframe) {
+        for (int i = 0; i < NUM_LEDS; i++) {
+            leds[i] = CRGB::Black;
+        }
+        memset(boardCells, 0, sizeof(boardCells));
     }
 
-    FastLED.show();  // Update the LED strip with the new colors
+    const uint8_t *record = payload + FRAME_HEADER_SIZE;
+    for (uint16_t i = 0; i < count; i++, record += recordSize) {
+        // A cell record is a span of one cell
+        uint8_t row = record[0];
+        uint8_t firstCol = record[1] >> 4;
+        uint8_t lastCol = spans ? record[1] & 0x0F : firstCol;
+        uint8_t colorIndex = spans ? record[2] : record[1] & 0x0F;
+        if (row >= BOARD_ROWS || lastCol >= BOARD_COLS || firstCol > lastCol || colorIndex >= paletteSize) {
+            continue;
+        }
+        for (uint8_t col = firstCol; col <= lastCol; col++) {
+            setCell(row, col, colorIndex);
+        }
+    }
+    FastLED.show();
 }
 
-
-void displayTextOnLEDs() {
-    // Turn off all LEDs first
-    turnOffLEDs();
-
-    // Specify the indices for each part of the text
-    int indices[] = {
-        122, 123, 124, 126, 128, 131, 132, 135, 137, 142, 144, 
-                            146, 149, 151, 153, 155, 157, 163, 164, 166, 168, 170, 
-                            173, 175, 177, 183, 186, 189, 191, 193, 195, 197, 202, 
-                            204, 206, 207, 208, 211, 212, 216, 260, 261, 262, 265,
-                            266, 269, 270, 273, 274, 275, 277, 278, 279, 282, 282, 
-                            284, 286, 288, 291, 295, 299, 300, 301, 302, 304, 308, 
-                            311, 313, 314, 317, 318, 319, 322, 324, 326, 328, 331, 
-                            335, 337, 340, 341, 342, 345, 346, 349, 350, 353, 355, 
-                            357, 358, 359, 406, 407, 408, 410, 411, 412, 428, 431, 
-                            446, 447, 448, 451, 473, 468, 486, 487, 488, 490, 491, 
-                            492
-    };
-
-    // Loop through the indices and light them up
-    for (int i = 0; i < sizeof(indices) / sizeof(indices[0]); i++) {
-        leds[indices[i]] = CRGB::Blue; 
+// Board frames stay in cells and are expanded here rather than on the phone. The phone composes
+// whole-strip screens such as the game over screen as LED ranges, but a board cell is four LEDs in
+// two serpentine runs, so the same changes sent as ranges cost about 100 bytes a frame instead of
+// about 18 over a recorded game. Keep this in step with LedLayout.java.
+void setCell(uint8_t row, uint8_t col, uint8_t colorIndex) {
+    int ledIndices[4];
+    boardCells[row][col] = colorIndex;
+    calculateLEDIndex(row, col, ledIndices);
+    for (int j = 0; j < 4; j++) {
+        leds[ledIndices[j]] = palette[colorIndex];
     }
-
-    FastLED.show();  // Update the LED strip
 }
 
-void lightUpGroupsWithDelay() {
-    std::vector<std::vector<int>> ledGroups = {
-        {105, 110, 114, 666, 670, 673},      
-        {95, 89, 84, 685, 689, 694},    
-        {63, 70, 76, 715, 710, 704}, 
-        {57, 49, 42, 723, 729, 736}, 
-        {21, 30, 38, 757, 750, 742}, 
-        {19, 9, 0, 761, 769, 778}  
-    };
-
-    int delayTime = 200; // 0.1 second delay
-
-    static unsigned long lastUpdateTime = 0;
-    static int currentGroup = 0;
-
-    unsigned long currentTime = millis();
-
-    if (currentTime - lastUpdateTime >= delayTime) {
-        lastUpdateTime = currentTime;
-
-        // Light up all groups from the first to the current one
-        for (int i = 0; i <= currentGroup; i++) {
-            for (int j = 0; j < ledGroups[i].size(); j++) {
-                leds[ledGroups[i][j]] = CRGB::Orange;  // Light up the LED with a color
-            }
+// Copy ranges of raw colors the phone composed straight onto the strip, after checking that every
+// range fits: [first LED hi][first LED lo][count] then count x R, G, B
+void updateLEDRanges(const uint8_t *payload, size_t length) {
+    uint16_t count = (payload[5] << 8) | payload[6];
+    size_t pos = FRAME_HEADER_SIZE;
+    bool valid = true;
+    for (uint16_t i = 0; i < count && valid; i++) {
+        valid = pos + LED_RANGE_HEADER_SIZE <= length;
+        if (valid) {
+            uint16_t first = (payload[pos] << 8) | payload[pos + 1];
+            uint8_t ledCount = payload[pos + 2];
+            valid = ledCount > 0 && first + ledCount <= NUM_LEDS;
+            pos += LED_RANGE_HEADER_SIZE + ledCount * LED_SIZE;
         }
+    }
+    if (!valid || pos != length) {
+        Serial.println("Dropping LED frame with bad ranges");
+        return;
+    }
 
-        // Display the LEDs
-        FastLED.show();
-
-        // Move to the next group
-        currentGroup++;
-
-        // If all groups have been lit, reset by turning off all groups except the first one
-        if (currentGroup >= ledGroups.size()) {
-            // Turn off LEDs in all groups except the first group
-            for (int i = 1; i < ledGroups.size(); i++) {
-                for (int j = 0; j < ledGroups[i].size(); j++) {
-                    leds[ledGroups[i][j]] = CRGB::Black;  // Turn off the LEDs in the group
-                }
-            }
-
-            // Display the LEDs
-            FastLED.show();
-
-            // Reset to start over with the first group already lit
-            currentGroup = 0;
+    const uint8_t *record = payload + FRAME_HEADER_SIZE;
+    for (uint16_t i = 0; i < count; i++) {
+        uint16_t first = (record[0] << 8) | record[1];
+        uint8_t ledCount = record[2];
+        record += LED_RANGE_HEADER_SIZE;
+        for (uint8_t j = 0; j < ledCount; j++, record += LED_SIZE) {
+            leds[first + j] = CRGB(record[0], record[1], record[2]);
         }
     }
+    // The board cells no longer say what is lit; the next board frame has to be a keyframe
+    frameSynced = false;
+    resyncRequested = false;
+    FastLED.show();
 }
 
-
-
-void updateLEDs(String data) {
-    int startIdx = 0;
-    while (startIdx < data.length()) {
-        int endIdx = data.indexOf(')', startIdx);
-        if (endIdx == -1) break;
-
-        String segment = data.substring(startIdx + 1, endIdx); // Skip '(' and ')'
-        int commaIdx1 = segment.indexOf(',');
-        int commaIdx2 = segment.indexOf(',', commaIdx1 + 1);
-        int commaIdx3 = segment.indexOf(',', commaIdx2 + 1);
-
-        int row = segment.substring(0, commaIdx1).toInt();
-        int col = segment.substring(commaIdx1 + 1, commaIdx2).toInt();
-        int deleteFlag = segment.substring(commaIdx2 + 1, commaIdx3).toInt();
-        String colorStr = segment.substring(commaIdx3 + 1);
-
-        uint8_t r = strtol(colorStr.substring(2, 4).c_str(), NULL, 16);
-        uint8_t g = strtol(colorStr.substring(4, 6).c_str(), NULL, 16);
-        uint8_t b = strtol(colorStr.substring(6, 8).c_str(), NULL, 16);
-        CRGB color = CRGB(r, g, b);
-
-        int ledIndices[4];
-        calculateLEDIndex(row, col, ledIndices);
-
-        if (deleteFlag == 1) {
-            for (int i = 0; i < 4; i++) {
-                leds[ledIndices[i]] = CRGB::Black;
-            }
-        } else {
-            for (int i = 0; i < 4; i++) {
-                leds[ledIndices[i]] = color;
+// Store a new palette, one R, G, B record per entry, and repaint the board if it is showing
+void updatePalette(const uint8_t *record, uint16_t count) {
+    if (count == 0 || count > MAX_PALETTE_SIZE) {
+        Serial.println("Dropping palette of bad size");
+        return;
+    }
+    for (uint16_t i = 0; i < count; i++, record += PALETTE_RECORD_SIZE) {
+        palette[i] = CRGB(record[0], record[1], record[2]);
+    }
+    paletteSize = count;
+    if (frameSynced) {
+        for (uint8_t row = 0; row < BOARD_ROWS; row++) {
+            for (uint8_t col = 0; col < BOARD_COLS; col++) {
+                setCell(row, col, boardCells[row][col] < paletteSize ? boardCells[row][col] : 0);
             }
         }
-        // Move past the closing ')' and the next comma (if any)
-        startIdx = endIdx + 2; 
+        FastLED.show();
     }
-    FastLED.show();
 }
 
+// The four LEDs of a board cell; LedLayout.cellLed on the phone builds the same table
 void calculateLEDIndex(int row, int col, int ledIndices[4]) {
     int actualRow1 = row * 2;
     int actualRow2 = actualRow1 + 1;
@@ -300,6 +250,7 @@ void turnOffLEDs() {
         leds[i] = CRGB::Black;
     }
     FastLED.show();
-    startLightUpSequence = false;
+    memset(boardCells, 0, sizeof(boardCells));
+    frameSynced = false; // The board is gone, the next delta needs a keyframe first
     Serial.println("All LEDs turned off.");
 }